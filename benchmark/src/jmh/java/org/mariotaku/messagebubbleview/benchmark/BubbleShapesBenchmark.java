@@ -0,0 +1,140 @@
+package org.mariotaku.messagebubbleview.benchmark;
+
+import org.mariotaku.messagebubbleview.geometry.BubbleShapes;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.HORIZONTAL;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.RIGHT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.VERTICAL;
+
+/**
+ * Cost of building bubble shapes per caret position, caret shape and bubble size. Buffer is
+ * reused like drawables do, so numbers cover geometry alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BubbleShapesBenchmark {
+
+    @Param({"none", "top_left", "top_right", "bottom_left", "bottom_right", "top", "bottom",
+            "left", "right", "top_left_vertical", "top_right_vertical"})
+    public String caretPosition;
+
+    @Param({"triangle", "curved", "rounded"})
+    public String caretShape;
+
+    /**
+     * Bubble width and height, from a one word reply to a full screen message
+     */
+    @Param({"96x48", "320x120", "1080x1600"})
+    public String size;
+
+    private final ShapeBuffer mBuffer = new ShapeBuffer();
+    private final float[] mUniformRadii = {16, 16, 16, 16};
+    private final float[] mGroupedRadii = {16, 4, 4, 16};
+    private CaretShape mCaretShape;
+    private int mPosition;
+    private float mWidth, mHeight;
+    private float mCaretOffset;
+
+    @Setup
+    public void setup() {
+        mPosition = parsePosition(caretPosition);
+        mCaretShape = parseShape(caretShape);
+        final int x = size.indexOf('x');
+        mWidth = Integer.parseInt(size.substring(0, x));
+        mHeight = Integer.parseInt(size.substring(x + 1));
+    }
+
+    @Benchmark
+    public int buildBubble() {
+        BubbleShapes.buildBubble(mBuffer, 0, 0, mWidth, mHeight, mUniformRadii, mCaretShape, 24,
+                18, mPosition, 0.5f, Float.NaN);
+        return mBuffer.getOpCount();
+    }
+
+    @Benchmark
+    public int buildGroupedBubble() {
+        BubbleShapes.buildBubble(mBuffer, 0, 0, mWidth, mHeight, mGroupedRadii, mCaretShape, 24,
+                18, mPosition, 0.5f, Float.NaN);
+        return mBuffer.getOpCount();
+    }
+
+    /**
+     * Caret moving every frame, as with an animated caret offset
+     */
+    @Benchmark
+    public int buildAnimatedBubble() {
+        mCaretOffset = mCaretOffset >= 1 ? 0 : mCaretOffset + 0.01f;
+        BubbleShapes.buildBubble(mBuffer, 0, 0, mWidth, mHeight, mUniformRadii, mCaretShape, 24,
+                18, mPosition, mCaretOffset, Float.NaN);
+        return mBuffer.getOpCount();
+    }
+
+    @Benchmark
+    public boolean buildCaret() {
+        return BubbleShapes.buildCaret(mBuffer, mCaretShape, 24, 18, mPosition);
+    }
+
+    private static int parsePosition(String position) {
+        switch (position) {
+            case "none":
+                return 0;
+            case "top_left":
+                return TOP | LEFT;
+            case "top_right":
+                return TOP | RIGHT;
+            case "bottom_left":
+                return BOTTOM | LEFT;
+            case "bottom_right":
+                return BOTTOM | RIGHT;
+            case "top":
+                return TOP | VERTICAL;
+            case "bottom":
+                return BOTTOM | VERTICAL;
+            case "left":
+                return LEFT | HORIZONTAL;
+            case "right":
+                return RIGHT | HORIZONTAL;
+            case "top_left_vertical":
+                return TOP | LEFT | VERTICAL;
+            case "top_right_vertical":
+                return TOP | RIGHT | VERTICAL;
+            default:
+                throw new IllegalArgumentException(position);
+        }
+    }
+
+    private static CaretShape parseShape(String shape) {
+        switch (shape) {
+            case "triangle":
+                return CaretShape.TRIANGLE;
+            case "curved":
+                return CaretShape.CURVED;
+            case "rounded":
+                return CaretShape.ROUNDED;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+}
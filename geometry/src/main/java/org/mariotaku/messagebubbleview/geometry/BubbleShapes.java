@@ -0,0 +1,324 @@
+package org.mariotaku.messagebubbleview.geometry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Stateless bubble shape builders. Shapes are emitted into a {@link ShapeBuffer} and don't touch
+ * any platform class, so they can be benchmarked and checked on a plain JVM.
+ * <p>
+ * Caret positions are the absolute gravity flags used by bubble views, constants here have same
+ * values as their {@code android.view.Gravity} counterparts.
+ */
+public final class BubbleShapes {
+
+    public static final int TOP = 0x30;
+    public static final int BOTTOM = 0x50;
+    public static final int LEFT = 0x03;
+    public static final int RIGHT = 0x05;
+    public static final int HORIZONTAL = 0x08;
+    public static final int VERTICAL = 0x80;
+
+    private static final int HORIZONTAL_MASK = 0x07;
+    private static final int VERTICAL_MASK = 0x70;
+
+    /**
+     * @see <a href='https://nacho4d-nacho4d.blogspot.com/2011/05/bezier-paths-rounded-corners-rectangles.html'>Bezier Paths : making rectangles with rounded corners</a>
+     */
+    public static final float CONTROL_POINT_RATIO = 0.447771526f;
+
+    /**
+     * Caret pieces reach this far into the body so anti-aliased edges don't leave a seam
+     */
+    private static final float CARET_OVERLAP = 1f;
+
+    public static final int TOP_LEFT = 0;
+    public static final int TOP_RIGHT = 1;
+    public static final int BOTTOM_RIGHT = 2;
+    public static final int BOTTOM_LEFT = 3;
+
+    // Body edges in clockwise walking order, each starting at corner of same index
+    private static final int EDGE_TOP = 0;
+    private static final int EDGE_RIGHT = 1;
+    private static final int EDGE_BOTTOM = 2;
+    private static final int EDGE_LEFT = 3;
+    private static final float[] EDGE_DX = {1, 0, -1, 0};
+    private static final float[] EDGE_DY = {0, 1, 0, -1};
+
+    private BubbleShapes() {
+    }
+
+    /**
+     * Builds bubble walking body clockwise from its top left corner. Caret outline from
+     * {@code caretShape} is inserted into the edge it's attached to, a corner caret replaces
+     * the body corner it points from. Buffer is reset first.
+     *
+     * @param radii Absolute corner radii, indexed by {@link #TOP_LEFT}, {@link #TOP_RIGHT},
+     *              {@link #BOTTOM_RIGHT} and {@link #BOTTOM_LEFT}
+     */
+    public static void buildBubble(@NonNull ShapeBuffer out, float left, float top, float right,
+                                   float bottom, @NonNull float[] radii,
+                                   @NonNull CaretShape caretShape, float caretWidth,
+                                   float caretHeight, int absoluteCaretPosition,
+                                   float caretOffset, float caretAbsOffset) {
+        if (caretWidth < 0) {
+            caretWidth = right - left;
+        }
+        if (caretHeight < 0) {
+            caretHeight = bottom - top;
+        }
+        final int position = absoluteCaretPosition;
+        final int caretEdge = getCaretEdge(position);
+        final CaretShape.Outline caret = caretEdge < 0 ? null
+                : getCaretOutline(caretShape, caretWidth, caretHeight, position);
+        final float depth = caret != null ? caret.depth : 0;
+        left += caretEdge == EDGE_LEFT ? depth : 0;
+        top += caretEdge == EDGE_TOP ? depth : 0;
+        right -= caretEdge == EDGE_RIGHT ? depth : 0;
+        bottom -= caretEdge == EDGE_BOTTOM ? depth : 0;
+        final int caretCorner = getCaretCorner(position);
+        final float tl = caretCorner == TOP_LEFT ? 0 : radii[TOP_LEFT];
+        final float tr = caretCorner == TOP_RIGHT ? 0 : radii[TOP_RIGHT];
+        final float br = caretCorner == BOTTOM_RIGHT ? 0 : radii[BOTTOM_RIGHT];
+        final float bl = caretCorner == BOTTOM_LEFT ? 0 : radii[BOTTOM_LEFT];
+        float tipDistance = 0;
+        if (caret != null) {
+            if (caretCorner == caretEdge) {
+                // Edge starts at the corner caret points from
+                tipDistance = 0;
+            } else if (caretCorner >= 0) {
+                tipDistance = caretEdge == EDGE_TOP || caretEdge == EDGE_BOTTOM ? right - left
+                        : bottom - top;
+            } else {
+                tipDistance = getCaretTipDistance(caretEdge, left, top, right, bottom, tl, tr,
+                        br, bl, caretWidth, caretOffset, caretAbsOffset);
+            }
+        }
+        out.reset();
+        out.moveTo(left + tl, top);
+        edgeTo(out, EDGE_TOP, left, top, tl, right, top, tr, caretEdge, caret, tipDistance);
+        edgeTo(out, EDGE_RIGHT, right, top, tr, right, bottom, br, caretEdge, caret, tipDistance);
+        edgeTo(out, EDGE_BOTTOM, right, bottom, br, left, bottom, bl, caretEdge, caret, tipDistance);
+        edgeTo(out, EDGE_LEFT, left, bottom, bl, left, top, tl, caretEdge, caret, tipDistance);
+        out.close();
+    }
+
+    /**
+     * Builds caret alone, relative to its tip, reaching slightly into body. Result doesn't
+     * depend on bubble size. Buffer is reset first.
+     *
+     * @return {@code false} if caret position has no caret
+     */
+    public static boolean buildCaret(@NonNull ShapeBuffer out, @NonNull CaretShape caretShape,
+                                     float caretWidth, float caretHeight,
+                                     int absoluteCaretPosition) {
+        out.reset();
+        final int edge = getCaretEdge(absoluteCaretPosition);
+        if (edge < 0) return false;
+        final CaretShape.Outline caret = getCaretOutline(caretShape, caretWidth, caretHeight,
+                absoluteCaretPosition);
+        final float dx = EDGE_DX[edge], dy = EDGE_DY[edge];
+        // Base lies depth away from tip, towards body
+        final float baseX = -dy * caret.depth, baseY = dx * caret.depth;
+        final float overlapX = -dy * CARET_OVERLAP, overlapY = dx * CARET_OVERLAP;
+        out.moveTo(baseX - dx * caret.before, baseY - dy * caret.before);
+        caret.addTo(out, baseX, baseY, dx, dy);
+        out.lineTo(baseX + dx * caret.after + overlapX, baseY + dy * caret.after + overlapY);
+        out.lineTo(baseX - dx * caret.before + overlapX, baseY - dy * caret.before + overlapY);
+        out.close();
+        return true;
+    }
+
+    /**
+     * @return Number of points {@link #getCaretPoints} writes
+     */
+    public static int getCaretPointCount(@NonNull CaretShape caretShape, float caretWidth,
+                                         float caretHeight, int absoluteCaretPosition) {
+        if (getCaretEdge(absoluteCaretPosition) < 0) return 0;
+        return getCaretOutline(caretShape, caretWidth, caretHeight, absoluteCaretPosition)
+                .getPointCount();
+    }
+
+    /**
+     * Writes caret base start and all segment points, control points included, as x and y
+     * pairs. Caret lies within their convex hull.
+     *
+     * @param offset Index of first point in {@code out}
+     * @param tipX   X of caret tip
+     * @param tipY   Y of caret tip
+     * @return Number of points written
+     */
+    public static int getCaretPoints(@NonNull float[] out, int offset,
+                                     @NonNull CaretShape caretShape, float caretWidth,
+                                     float caretHeight, int absoluteCaretPosition, float tipX,
+                                     float tipY) {
+        final int edge = getCaretEdge(absoluteCaretPosition);
+        if (edge < 0) return 0;
+        final CaretShape.Outline caret = getCaretOutline(caretShape, caretWidth, caretHeight,
+                absoluteCaretPosition);
+        final float dx = EDGE_DX[edge], dy = EDGE_DY[edge];
+        return caret.getPoints(out, offset, tipX - dy * caret.depth, tipY + dx * caret.depth,
+                dx, dy);
+    }
+
+    /**
+     * @return {@code true} if all corners have same radius
+     */
+    public static boolean isUniform(@NonNull float[] radii) {
+        return radii[TOP_LEFT] == radii[TOP_RIGHT] && radii[TOP_LEFT] == radii[BOTTOM_RIGHT]
+                && radii[TOP_LEFT] == radii[BOTTOM_LEFT];
+    }
+
+    public static float getMaxRadius(@NonNull float[] radii) {
+        return Math.max(Math.max(radii[TOP_LEFT], radii[TOP_RIGHT]),
+                Math.max(radii[BOTTOM_RIGHT], radii[BOTTOM_LEFT]));
+    }
+
+    /**
+     * @param startRadius Radius of corner at start of caret edge, left or top
+     * @param endRadius   Radius of corner at end of caret edge, right or bottom
+     */
+    public static float getCaretCenter(float startRadius, float endRadius, float caretWidth,
+                                       float start, float size, float caretOffset,
+                                       float caretAbsOffset) {
+        if (!Float.isNaN(caretAbsOffset)) return caretAbsOffset;
+        return start + startRadius + (size - startRadius - endRadius - caretWidth) * caretOffset
+                + caretWidth / 2;
+    }
+
+    /**
+     * Walks body edge from its start corner {@code (x0, y0)} to its end corner {@code (x1, y1)},
+     * inserting caret if it's attached to this edge, then rounds end corner
+     */
+    private static void edgeTo(ShapeBuffer out, int edge, float x0, float y0, float r0,
+                               float x1, float y1, float r1, int caretEdge,
+                               @Nullable CaretShape.Outline caret, float tipDistance) {
+        final float dx = EDGE_DX[edge], dy = EDGE_DY[edge];
+        float x = x0 + dx * r0, y = y0 + dy * r0;
+        if (caret != null && edge == caretEdge) {
+            final float baseX = x0 + dx * tipDistance, baseY = y0 + dy * tipDistance;
+            final float startX = baseX - dx * caret.before, startY = baseY - dy * caret.before;
+            if (startX != x || startY != y) {
+                out.lineTo(startX, startY);
+            }
+            caret.addTo(out, baseX, baseY, dx, dy);
+            x = baseX + dx * caret.after;
+            y = baseY + dy * caret.after;
+        }
+        final float endX = x1 - dx * r1, endY = y1 - dy * r1;
+        if (endX != x || endY != y) {
+            out.lineTo(endX, endY);
+        }
+        final int next = (edge + 1) % 4;
+        cornerTo(out, endX, endY, x1, y1, x1 + EDGE_DX[next] * r1, y1 + EDGE_DY[next] * r1);
+    }
+
+    /**
+     * Rounds corner from current point {@code (startX, startY)}, does nothing for zero radius
+     */
+    private static void cornerTo(ShapeBuffer out, float startX, float startY, float cornerX,
+                                 float cornerY, float endX, float endY) {
+        if (startX == endX && startY == endY) return;
+        final float f = 1 - CONTROL_POINT_RATIO;
+        out.cubicTo(startX + (cornerX - startX) * f, startY + (cornerY - startY) * f,
+                endX + (cornerX - endX) * f, endY + (cornerY - endY) * f, endX, endY);
+    }
+
+    /**
+     * @return Distance of centered caret tip from start corner of its edge
+     */
+    private static float getCaretTipDistance(int edge, float left, float top, float right,
+                                             float bottom, float tl, float tr, float br,
+                                             float bl, float caretWidth, float caretOffset,
+                                             float caretAbsOffset) {
+        switch (edge) {
+            case EDGE_TOP:
+                return getCaretCenter(tl, tr, caretWidth, left, right - left, caretOffset,
+                        caretAbsOffset) - left;
+            case EDGE_RIGHT:
+                return getCaretCenter(tr, br, caretWidth, top, bottom - top, caretOffset,
+                        caretAbsOffset) - top;
+            case EDGE_BOTTOM:
+                return right - getCaretCenter(bl, br, caretWidth, left, right - left,
+                        caretOffset, caretAbsOffset);
+            default:
+                return bottom - getCaretCenter(tl, bl, caretWidth, top, bottom - top,
+                        caretOffset, caretAbsOffset);
+        }
+    }
+
+    /**
+     * @return Body edge caret is attached to, or {@code -1} if position has no caret
+     */
+    private static int getCaretEdge(int absoluteCaretPosition) {
+        switch (absoluteCaretPosition) {
+            case TOP | VERTICAL:
+            case TOP | LEFT | VERTICAL:
+            case TOP | RIGHT | VERTICAL:
+                return EDGE_TOP;
+            case TOP | RIGHT:
+            case BOTTOM | RIGHT:
+            case RIGHT | HORIZONTAL:
+                return EDGE_RIGHT;
+            case BOTTOM | VERTICAL:
+                return EDGE_BOTTOM;
+            case TOP | LEFT:
+            case BOTTOM | LEFT:
+            case LEFT | HORIZONTAL:
+                return EDGE_LEFT;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return {@code true} if caret replaces a body corner instead of sitting centered on an edge
+     */
+    public static boolean isCornerCaret(int absoluteCaretPosition) {
+        return getCaretCorner(absoluteCaretPosition) >= 0;
+    }
+
+    /**
+     * @return Body corner a corner caret replaces, or {@code -1} for centered carets
+     */
+    private static int getCaretCorner(int absoluteCaretPosition) {
+        final int horizontal = absoluteCaretPosition & HORIZONTAL_MASK;
+        switch (absoluteCaretPosition & VERTICAL_MASK) {
+            case TOP:
+                return horizontal == LEFT ? TOP_LEFT : horizontal == RIGHT ? TOP_RIGHT : -1;
+            case BOTTOM:
+                return horizontal == LEFT ? BOTTOM_LEFT : horizontal == RIGHT ? BOTTOM_RIGHT : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Caret outline in walking direction of its edge. Corner carets have their tip at the
+     * corner, centered ones keep the legacy base of half height before and half width after
+     * tip on horizontal edges.
+     */
+    @NonNull
+    private static CaretShape.Outline getCaretOutline(@NonNull CaretShape shape, float caretWidth,
+                                                      float caretHeight,
+                                                      int absoluteCaretPosition) {
+        switch (absoluteCaretPosition) {
+            case TOP | LEFT:
+            case BOTTOM | RIGHT:
+                return shape.getOutline(caretHeight, 0, caretWidth);
+            case TOP | RIGHT:
+            case BOTTOM | LEFT:
+                return shape.getOutline(0, caretHeight, caretWidth);
+            case TOP | LEFT | VERTICAL:
+                return shape.getOutline(0, caretWidth, caretHeight);
+            case TOP | RIGHT | VERTICAL:
+                return shape.getOutline(caretWidth, 0, caretHeight);
+            case RIGHT | HORIZONTAL:
+                return shape.getOutline(caretHeight / 2, caretWidth / 2, caretHeight);
+            case LEFT | HORIZONTAL:
+                return shape.getOutline(caretWidth / 2, caretHeight / 2, caretHeight);
+            default:
+                return shape.getOutline(caretWidth / 2, caretWidth / 2, caretHeight);
+        }
+    }
+}
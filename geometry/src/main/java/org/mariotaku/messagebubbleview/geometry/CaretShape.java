@@ -0,0 +1,292 @@
+package org.mariotaku.messagebubbleview.geometry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Shape of bubble caret, composed with bubble body by {@link BubbleShapes}.
+ * <p>
+ * Caret is described in its own frame: its base lies on bubble body from {@code (-before, 0)}
+ * to {@code (after, 0)}, and its tip points away from body at {@code (0, depth)}. Same frame is
+ * placed on whichever body edge caret is attached to, so a shape serves every caret position.
+ * For corner carets one of {@code before} and {@code after} is zero.
+ * <p>
+ * Outline of each caret size is built once and reused. Custom shapes implement
+ * {@link #onBuildCaret(Builder, float, float, float)}, and must stay within the box spanned by
+ * base and tip. Shapes are compared by identity in bubble caches, so reuse instances.
+ */
+public abstract class CaretShape {
+
+    /**
+     * Straight triangle
+     */
+    public static final CaretShape TRIANGLE = new Triangle();
+    /**
+     * Tail with concave sides meeting at a sharp tip. With a bottom corner caret position this
+     * gives iMessage-like tails.
+     */
+    public static final CaretShape CURVED = new Curved();
+    /**
+     * Triangle with rounded tip
+     */
+    public static final CaretShape ROUNDED = new Rounded();
+
+    private static final int MAX_CACHED_OUTLINES = 8;
+
+    private final LinkedHashMap<Outline, Outline> mOutlines = new LinkedHashMap<>(8, 0.75f, true);
+    private final Outline mLookupKey = new Outline();
+    private Outline mLastOutline;
+
+    /**
+     * Describes caret outline. Outline implicitly starts at {@code (-before, 0)} and must end at
+     * {@code (after, 0)}.
+     *
+     * @param before Length of base before tip, along walking direction of bubble outline
+     * @param after  Length of base after tip
+     * @param depth  Distance of tip from body
+     */
+    protected abstract void onBuildCaret(@NonNull Builder builder, float before, float after,
+                                         float depth);
+
+    /**
+     * @return Shared outline of this caret, computed once per size
+     */
+    @NonNull
+    final synchronized Outline getOutline(float before, float after, float depth) {
+        final Outline last = mLastOutline;
+        if (last != null && last.hasSize(before, after, depth)) return last;
+        mLookupKey.setSize(before, after, depth);
+        Outline outline = mOutlines.get(mLookupKey);
+        if (outline == null) {
+            outline = new Outline();
+            outline.setSize(before, after, depth);
+            final Builder builder = new Builder(outline);
+            onBuildCaret(builder, before, after, depth);
+            mOutlines.put(outline, outline);
+            final Iterator<Outline> iterator = mOutlines.keySet().iterator();
+            int size = mOutlines.size();
+            while (size > MAX_CACHED_OUTLINES && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                size--;
+            }
+        }
+        mLastOutline = outline;
+        return outline;
+    }
+
+    /**
+     * Records caret outline segments in caret frame
+     */
+    public static final class Builder {
+
+        private final Outline mOutline;
+
+        Builder(@NonNull Outline outline) {
+            mOutline = outline;
+        }
+
+        @NonNull
+        public Builder lineTo(float x, float y) {
+            mOutline.add(Outline.VERB_LINE, x, y, 0, 0, 0, 0);
+            return this;
+        }
+
+        @NonNull
+        public Builder quadTo(float x1, float y1, float x2, float y2) {
+            mOutline.add(Outline.VERB_QUAD, x1, y1, x2, y2, 0, 0);
+            return this;
+        }
+
+        @NonNull
+        public Builder cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            mOutline.add(Outline.VERB_CUBIC, x1, y1, x2, y2, x3, y3);
+            return this;
+        }
+    }
+
+    /**
+     * Immutable once built. Equality only considers caret size, so an empty instance can be
+     * used as lookup key.
+     */
+    static final class Outline {
+
+        static final byte VERB_LINE = 1;
+        static final byte VERB_QUAD = 2;
+        static final byte VERB_CUBIC = 3;
+
+        float before, after, depth;
+
+        private byte[] mVerbs = new byte[4];
+        private float[] mPoints = new float[16];
+        private int mVerbCount, mPointCount;
+
+        void setSize(float before, float after, float depth) {
+            this.before = before;
+            this.after = after;
+            this.depth = depth;
+        }
+
+        boolean hasSize(float before, float after, float depth) {
+            return this.before == before && this.after == after && this.depth == depth;
+        }
+
+        void add(byte verb, float x1, float y1, float x2, float y2, float x3, float y3) {
+            if (mVerbCount == mVerbs.length) {
+                final byte[] verbs = new byte[mVerbCount * 2];
+                System.arraycopy(mVerbs, 0, verbs, 0, mVerbCount);
+                mVerbs = verbs;
+            }
+            if (mPointCount * 2 + 6 > mPoints.length) {
+                final float[] points = new float[mPoints.length * 2];
+                System.arraycopy(mPoints, 0, points, 0, mPointCount * 2);
+                mPoints = points;
+            }
+            mVerbs[mVerbCount++] = verb;
+            final float[] points = mPoints;
+            int i = mPointCount * 2;
+            points[i++] = x1;
+            points[i++] = y1;
+            if (verb >= VERB_QUAD) {
+                points[i++] = x2;
+                points[i++] = y2;
+            }
+            if (verb == VERB_CUBIC) {
+                points[i++] = x3;
+                points[i++] = y3;
+            }
+            mPointCount = i / 2;
+        }
+
+        /**
+         * Appends caret to {@code buffer}, whose current point must be base start
+         *
+         * @param baseX X of base point under tip
+         * @param baseY Y of base point under tip
+         * @param dx    Walking direction of bubble outline along base
+         * @param dy    Walking direction of bubble outline along base
+         */
+        void addTo(@NonNull ShapeBuffer buffer, float baseX, float baseY, float dx, float dy) {
+            final float[] p = mPoints;
+            for (int i = 0, j = 0; i < mVerbCount; i++) {
+                switch (mVerbs[i]) {
+                    case VERB_LINE: {
+                        buffer.lineTo(mapX(p, j, baseX, dx, dy), mapY(p, j, baseY, dx, dy));
+                        j += 2;
+                        break;
+                    }
+                    case VERB_QUAD: {
+                        buffer.quadTo(mapX(p, j, baseX, dx, dy), mapY(p, j, baseY, dx, dy),
+                                mapX(p, j + 2, baseX, dx, dy), mapY(p, j + 2, baseY, dx, dy));
+                        j += 4;
+                        break;
+                    }
+                    case VERB_CUBIC: {
+                        buffer.cubicTo(mapX(p, j, baseX, dx, dy), mapY(p, j, baseY, dx, dy),
+                                mapX(p, j + 2, baseX, dx, dy), mapY(p, j + 2, baseY, dx, dy),
+                                mapX(p, j + 4, baseX, dx, dy), mapY(p, j + 4, baseY, dx, dy));
+                        j += 6;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Number of points written by {@link #getPoints(float[], int, float, float, float, float)}
+         */
+        int getPointCount() {
+            return mPointCount + 1;
+        }
+
+        /**
+         * Writes base start and all segment points, control points included. Caret lies within
+         * their convex hull.
+         *
+         * @return Number of points written
+         */
+        int getPoints(@NonNull float[] out, int offset, float baseX, float baseY, float dx,
+                      float dy) {
+            out[offset * 2] = baseX - dx * before;
+            out[offset * 2 + 1] = baseY - dy * before;
+            final float[] p = mPoints;
+            for (int i = 0; i < mPointCount; i++) {
+                out[(offset + 1 + i) * 2] = mapX(p, i * 2, baseX, dx, dy);
+                out[(offset + 1 + i) * 2 + 1] = mapY(p, i * 2, baseY, dx, dy);
+            }
+            return mPointCount + 1;
+        }
+
+        // Caret y axis points out of body, to the left of walking direction in y-down space
+        private static float mapX(float[] p, int i, float baseX, float dx, float dy) {
+            return baseX + p[i] * dx + p[i + 1] * dy;
+        }
+
+        private static float mapY(float[] p, int i, float baseY, float dx, float dy) {
+            return baseY + p[i] * dy - p[i + 1] * dx;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Outline that = (Outline) o;
+            return Float.compare(that.before, before) == 0
+                    && Float.compare(that.after, after) == 0
+                    && Float.compare(that.depth, depth) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(before);
+            result = 31 * result + Float.floatToIntBits(after);
+            result = 31 * result + Float.floatToIntBits(depth);
+            return result;
+        }
+    }
+
+    private static final class Triangle extends CaretShape {
+
+        @Override
+        protected void onBuildCaret(@NonNull Builder builder, float before, float after,
+                                    float depth) {
+            builder.lineTo(0, depth);
+            builder.lineTo(after, 0);
+        }
+    }
+
+    private static final class Curved extends CaretShape {
+
+        /**
+         * How far along each side control points reach, larger values give thinner tails
+         */
+        private static final float PINCH = 0.55f;
+
+        @Override
+        protected void onBuildCaret(@NonNull Builder builder, float before, float after,
+                                    float depth) {
+            // Sides leave body along its edge and meet at tip pointing straight out
+            builder.cubicTo(-before * (1 - PINCH), 0, 0, depth * PINCH, 0, depth);
+            builder.cubicTo(0, depth * PINCH, after * (1 - PINCH), 0, after, 0);
+        }
+    }
+
+    private static final class Rounded extends CaretShape {
+
+        /**
+         * Fraction of each side replaced by tip rounding
+         */
+        private static final float TIP_FRACTION = 0.3f;
+
+        @Override
+        protected void onBuildCaret(@NonNull Builder builder, float before, float after,
+                                    float depth) {
+            final float y = depth * (1 - TIP_FRACTION);
+            builder.lineTo(-before * TIP_FRACTION, y);
+            builder.quadTo(0, depth, after * TIP_FRACTION, y);
+            builder.lineTo(after, 0);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.mariotaku.messagebubbleview.geometry;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Compact recording of path commands. Op codes go to an {@code int[]} and their coordinates,
+ * {@link #getCoordCount(int)} per op, to a {@code float[]}, so a shape can be built without any
+ * platform classes and replayed into whatever path type draws it.
+ * <p>
+ * Buffer grows as needed and is meant to be reused, {@link #reset()} keeps its capacity.
+ */
+public final class ShapeBuffer {
+
+    public static final int OP_MOVE = 0;
+    public static final int OP_LINE = 1;
+    public static final int OP_QUAD = 2;
+    public static final int OP_CUBIC = 3;
+    public static final int OP_CLOSE = 4;
+
+    private int[] mOps;
+    private float[] mCoords;
+    private int mOpCount, mCoordCount;
+
+    public ShapeBuffer() {
+        this(32);
+    }
+
+    /**
+     * @param opCapacity Number of ops buffer holds before growing
+     */
+    public ShapeBuffer(int opCapacity) {
+        if (opCapacity <= 0) throw new IllegalArgumentException("opCapacity <= 0");
+        mOps = new int[opCapacity];
+        mCoords = new float[opCapacity * 6];
+    }
+
+    /**
+     * @return Number of coordinates, x and y counted separately, taken by {@code op}
+     */
+    public static int getCoordCount(int op) {
+        switch (op) {
+            case OP_MOVE:
+            case OP_LINE:
+                return 2;
+            case OP_QUAD:
+                return 4;
+            case OP_CUBIC:
+                return 6;
+            case OP_CLOSE:
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    public void reset() {
+        mOpCount = 0;
+        mCoordCount = 0;
+    }
+
+    public void moveTo(float x, float y) {
+        ensureCapacity(2);
+        mOps[mOpCount++] = OP_MOVE;
+        mCoords[mCoordCount++] = x;
+        mCoords[mCoordCount++] = y;
+    }
+
+    public void lineTo(float x, float y) {
+        ensureCapacity(2);
+        mOps[mOpCount++] = OP_LINE;
+        mCoords[mCoordCount++] = x;
+        mCoords[mCoordCount++] = y;
+    }
+
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        ensureCapacity(4);
+        mOps[mOpCount++] = OP_QUAD;
+        final float[] coords = mCoords;
+        int i = mCoordCount;
+        coords[i++] = x1;
+        coords[i++] = y1;
+        coords[i++] = x2;
+        coords[i++] = y2;
+        mCoordCount = i;
+    }
+
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        ensureCapacity(6);
+        mOps[mOpCount++] = OP_CUBIC;
+        final float[] coords = mCoords;
+        int i = mCoordCount;
+        coords[i++] = x1;
+        coords[i++] = y1;
+        coords[i++] = x2;
+        coords[i++] = y2;
+        coords[i++] = x3;
+        coords[i++] = y3;
+        mCoordCount = i;
+    }
+
+    public void close() {
+        ensureCapacity(0);
+        mOps[mOpCount++] = OP_CLOSE;
+    }
+
+    public boolean isEmpty() {
+        return mOpCount == 0;
+    }
+
+    public int getOpCount() {
+        return mOpCount;
+    }
+
+    public int getCoordCount() {
+        return mCoordCount;
+    }
+
+    /**
+     * @return Backing op array, valid up to {@link #getOpCount()}. Must not be modified.
+     */
+    @NonNull
+    public int[] getOps() {
+        return mOps;
+    }
+
+    /**
+     * @return Backing coordinate array, valid up to {@link #getCoordCount()}. Must not be
+     * modified.
+     */
+    @NonNull
+    public float[] getCoords() {
+        return mCoords;
+    }
+
+    private void ensureCapacity(int coords) {
+        if (mOpCount == mOps.length) {
+            final int[] ops = new int[mOpCount * 2];
+            System.arraycopy(mOps, 0, ops, 0, mOpCount);
+            mOps = ops;
+        }
+        if (mCoordCount + coords > mCoords.length) {
+            final float[] newCoords = new float[Math.max(mCoords.length * 2, mCoordCount + coords)];
+            System.arraycopy(mCoords, 0, newCoords, 0, mCoordCount);
+            mCoords = newCoords;
+        }
+    }
+}
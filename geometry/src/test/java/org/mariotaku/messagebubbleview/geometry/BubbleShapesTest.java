@@ -0,0 +1,105 @@
+package org.mariotaku.messagebubbleview.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.HORIZONTAL;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.RIGHT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.VERTICAL;
+
+/**
+ * Checks bubble shapes of every caret position on a plain JVM
+ */
+public class BubbleShapesTest {
+
+    private static final float WIDTH = 320, HEIGHT = 120;
+    private static final float[] RADII = {16, 16, 16, 16};
+
+    private static final int[] CORNER_POSITIONS = {TOP | LEFT, TOP | RIGHT, BOTTOM | LEFT,
+            BOTTOM | RIGHT, TOP | LEFT | VERTICAL, TOP | RIGHT | VERTICAL};
+    private static final int[] CENTERED_POSITIONS = {TOP | VERTICAL, BOTTOM | VERTICAL,
+            LEFT | HORIZONTAL, RIGHT | HORIZONTAL};
+    private static final CaretShape[] SHAPES = {CaretShape.TRIANGLE, CaretShape.CURVED,
+            CaretShape.ROUNDED};
+
+    private final ShapeBuffer mBuffer = new ShapeBuffer();
+
+    @Test
+    public void bubbleWithoutCaretIsRoundRect() {
+        build(CaretShape.TRIANGLE, 0);
+        // Move, four edges and four corners, close
+        assertEquals(10, mBuffer.getOpCount());
+        assertBounds();
+        assertFalse(BubbleShapes.buildCaret(mBuffer, CaretShape.TRIANGLE, 24, 18, 0));
+    }
+
+    @Test
+    public void cornerCaretReplacesCorner() {
+        for (CaretShape shape : SHAPES) {
+            for (int position : CORNER_POSITIONS) {
+                build(shape, 0);
+                final int noCaretOps = mBuffer.getOpCount();
+                build(shape, position);
+                assertEquals(noCaretOps + getCaretOps(shape) - 1, mBuffer.getOpCount());
+                assertBounds();
+                assertTrue(BubbleShapes.isCornerCaret(position));
+                assertTrue(BubbleShapes.buildCaret(mBuffer, shape, 24, 18, position));
+            }
+        }
+    }
+
+    @Test
+    public void centeredCaretSplitsEdge() {
+        for (CaretShape shape : SHAPES) {
+            for (int position : CENTERED_POSITIONS) {
+                build(shape, 0);
+                final int noCaretOps = mBuffer.getOpCount();
+                build(shape, position);
+                // Edge is split in two around caret
+                assertEquals(noCaretOps + getCaretOps(shape) + 1, mBuffer.getOpCount());
+                assertBounds();
+                assertFalse(BubbleShapes.isCornerCaret(position));
+                assertTrue(BubbleShapes.buildCaret(mBuffer, shape, 24, 18, position));
+            }
+        }
+    }
+
+    private void build(CaretShape shape, int position) {
+        BubbleShapes.buildBubble(mBuffer, 0, 0, WIDTH, HEIGHT, RADII, shape, 24, 18, position,
+                0.5f, Float.NaN);
+    }
+
+    /**
+     * Ops a caret inserts, rounded tips take one more
+     */
+    private static int getCaretOps(CaretShape shape) {
+        return shape == CaretShape.ROUNDED ? 3 : 2;
+    }
+
+    /**
+     * Checks shape is one closed contour exactly filling bubble bounds
+     */
+    private void assertBounds() {
+        final int[] ops = mBuffer.getOps();
+        assertEquals(ShapeBuffer.OP_MOVE, ops[0]);
+        assertEquals(ShapeBuffer.OP_CLOSE, ops[mBuffer.getOpCount() - 1]);
+        final float[] coords = mBuffer.getCoords();
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0, j = mBuffer.getCoordCount(); i < j; i += 2) {
+            left = Math.min(left, coords[i]);
+            right = Math.max(right, coords[i]);
+            top = Math.min(top, coords[i + 1]);
+            bottom = Math.max(bottom, coords[i + 1]);
+        }
+        assertEquals(0, left, 0);
+        assertEquals(0, top, 0);
+        assertEquals(WIDTH, right, 0);
+        assertEquals(HEIGHT, bottom, 0);
+    }
+}
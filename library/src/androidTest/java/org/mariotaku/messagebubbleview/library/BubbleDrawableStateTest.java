@@ -0,0 +1,76 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.drawable.Drawable;
+
+import junit.framework.TestCase;
+
+public class BubbleDrawableStateTest extends TestCase {
+
+    private static final int[] STATE_NONE = new int[0];
+    private static final int[] STATE_PRESSED = {android.R.attr.state_pressed};
+
+    private BubbleDrawable mDrawable;
+    private InvalidationCounter mCounter;
+
+    @Override
+    protected void setUp() throws Exception {
+        mDrawable = new BubbleDrawable();
+        mDrawable.setColor(new ColorStateList(new int[][]{STATE_PRESSED, STATE_NONE},
+                new int[]{Color.RED, Color.BLUE}));
+        mCounter = new InvalidationCounter();
+        mDrawable.setCallback(mCounter);
+    }
+
+    public void testSameColorDoesNotInvalidate() {
+        mDrawable.setColor(ColorStateList.valueOf(Color.BLUE));
+        assertEquals(0, mCounter.count);
+        assertFalse(mDrawable.isStateful());
+    }
+
+    public void testAlphaAndFilterInvalidateOnlyOnChange() {
+        mDrawable.setAlpha(255);
+        assertEquals(0, mCounter.count);
+        mDrawable.setAlpha(128);
+        mDrawable.setAlpha(128);
+        assertEquals(1, mCounter.count);
+        final PorterDuffColorFilter filter = new PorterDuffColorFilter(Color.RED, PorterDuff.Mode.SRC_IN);
+        mDrawable.setColorFilter(filter);
+        mDrawable.setColorFilter(filter);
+        assertEquals(2, mCounter.count);
+    }
+
+    public void testOpacity() {
+        assertEquals(PixelFormat.OPAQUE, mDrawable.getOpacity());
+        mDrawable.setCornerRadius(8);
+        assertEquals(PixelFormat.TRANSLUCENT, mDrawable.getOpacity());
+        mDrawable.setCornerRadius(0);
+        mDrawable.setCaretPosition(MessageBubbleView.BOTTOM | MessageBubbleView.LEFT);
+        assertEquals(PixelFormat.TRANSLUCENT, mDrawable.getOpacity());
+        mDrawable.setCaretPosition(MessageBubbleView.NONE);
+        mDrawable.setAlpha(0);
+        assertEquals(PixelFormat.TRANSPARENT, mDrawable.getOpacity());
+    }
+
+    private static class InvalidationCounter implements Drawable.Callback {
+
+        int count;
+
+        @Override
+        public void invalidateDrawable(Drawable who) {
+            count++;
+        }
+
+        @Override
+        public void scheduleDrawable(Drawable who, Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(Drawable who, Runnable what) {
+        }
+    }
+}
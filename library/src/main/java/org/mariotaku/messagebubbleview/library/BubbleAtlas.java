@@ -0,0 +1,292 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.mariotaku.messagebubbleview.geometry.BubbleShapes;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.HORIZONTAL;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.LEFT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.TOP;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.VERTICAL;
+
+/**
+ * Process wide cache of pre-rasterized bubble slices. Each distinct shape is drawn once into a
+ * small {@link Bitmap.Config#ALPHA_8} mask and bubbles of any size are drawn by stretching it,
+ * tinted with the bubble paint color.
+ * <p>
+ * Shapes with a centered caret get two stretchable strips on the caret axis, one on each side
+ * of the caret, so the caret stays unscaled at its offset.
+ */
+public final class BubbleAtlas {
+
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    private static final LinkedHashMap<Key, Slices> sSlices = new LinkedHashMap<>(16, 0.75f, true);
+    private static int sMaxSize = DEFAULT_MAX_SIZE;
+
+    private BubbleAtlas() {
+    }
+
+    /**
+     * @param maxSize Max number of cached bubble bitmaps
+     */
+    public static synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize < 0");
+        sMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public static synchronized int getMaxSize() {
+        return sMaxSize;
+    }
+
+    public static synchronized int size() {
+        return sSlices.size();
+    }
+
+    public static synchronized void clear() {
+        sSlices.clear();
+    }
+
+    /**
+     * @return Slices for this shape, or {@code null} if shape depends on bubble size
+     */
+    @Nullable
+    static synchronized Slices obtain(@NonNull Key key) {
+        if (key.caretWidth < 0 || key.caretHeight < 0) return null;
+        Slices slices = sSlices.get(key);
+        if (slices != null) return slices;
+        slices = new Slices(key);
+        if (sMaxSize > 0) {
+            sSlices.put(key.copy(), slices);
+            trimToSize(sMaxSize);
+        }
+        return slices;
+    }
+
+    private static void trimToSize(int maxSize) {
+        final Iterator<Key> iterator = sSlices.keySet().iterator();
+        int size = sSlices.size();
+        while (size > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            size--;
+        }
+    }
+
+    static final class Key {
+
+        float radius;
+        CaretShape caretShape = CaretShape.TRIANGLE;
+        float caretWidth, caretHeight;
+        int absoluteCaretPosition;
+
+        void set(float radius, @NonNull CaretShape caretShape, float caretWidth,
+                 float caretHeight, int absoluteCaretPosition) {
+            this.radius = radius;
+            this.caretShape = caretShape;
+            this.caretWidth = caretWidth;
+            this.caretHeight = caretHeight;
+            this.absoluteCaretPosition = absoluteCaretPosition;
+        }
+
+        Key copy() {
+            final Key key = new Key();
+            key.set(radius, caretShape, caretWidth, caretHeight, absoluteCaretPosition);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return absoluteCaretPosition == key.absoluteCaretPosition
+                    && Float.compare(key.radius, radius) == 0
+                    && caretShape.equals(key.caretShape)
+                    && Float.compare(key.caretWidth, caretWidth) == 0
+                    && Float.compare(key.caretHeight, caretHeight) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(radius);
+            result = 31 * result + caretShape.hashCode();
+            result = 31 * result + Float.floatToIntBits(caretWidth);
+            result = 31 * result + Float.floatToIntBits(caretHeight);
+            result = 31 * result + absoluteCaretPosition;
+            return result;
+        }
+    }
+
+    /**
+     * Immutable rasterized bubble with its slice boundaries. An axis has either 3 segments
+     * (fixed, stretch, fixed) or, for the axis a centered caret sits on, 5 segments
+     * (fixed, stretch, caret, stretch, fixed).
+     */
+    static final class Slices {
+
+        private final Bitmap mBitmap;
+        private final int[] mXs, mYs;
+        private final float mRadius, mCaretWidth;
+        private final float mCaretBefore;
+
+        Slices(Key key) {
+            final int position = key.absoluteCaretPosition;
+            final float radius = key.radius, caretWidth = key.caretWidth, caretHeight = key.caretHeight;
+            final int r = (int) Math.ceil(radius);
+            final int cw = (int) Math.ceil(caretWidth), ch = (int) Math.ceil(caretHeight);
+            mRadius = radius;
+            mCaretWidth = caretWidth;
+            float caretBefore = 0, caretAfter = 0;
+            int left = r, top = r, right = r, bottom = r;
+            boolean centeredX = false, centeredY = false;
+            switch (position) {
+                case TOP | LEFT: {
+                    left = cw + r;
+                    top = Math.max(ch, r);
+                    break;
+                }
+                case TOP | RIGHT: {
+                    right = cw + r;
+                    top = Math.max(ch, r);
+                    break;
+                }
+                case BOTTOM | LEFT: {
+                    left = cw + r;
+                    bottom = Math.max(ch, r);
+                    break;
+                }
+                case BOTTOM | RIGHT: {
+                    right = cw + r;
+                    bottom = Math.max(ch, r);
+                    break;
+                }
+                case TOP | VERTICAL: {
+                    top = ch + r;
+                    centeredX = true;
+                    caretBefore = caretAfter = caretWidth / 2;
+                    break;
+                }
+                case BOTTOM | VERTICAL: {
+                    bottom = ch + r;
+                    centeredX = true;
+                    caretBefore = caretAfter = caretWidth / 2;
+                    break;
+                }
+                case LEFT | HORIZONTAL: {
+                    left = ch + r;
+                    centeredY = true;
+                    caretBefore = caretHeight / 2;
+                    caretAfter = caretWidth / 2;
+                    break;
+                }
+                case RIGHT | HORIZONTAL: {
+                    right = ch + r;
+                    centeredY = true;
+                    caretBefore = caretHeight / 2;
+                    caretAfter = caretWidth / 2;
+                    break;
+                }
+                case TOP | LEFT | VERTICAL: {
+                    left = Math.max(cw, r);
+                    top = ch + r;
+                    break;
+                }
+                case TOP | RIGHT | VERTICAL: {
+                    right = Math.max(cw, r);
+                    top = ch + r;
+                    break;
+                }
+            }
+            mCaretBefore = caretBefore;
+            final int caretSize = (int) Math.ceil(caretBefore + caretAfter);
+            mXs = centeredX ? centeredAxis(r, caretSize) : fixedAxis(left, right);
+            mYs = centeredY ? centeredAxis(r, caretSize) : fixedAxis(top, bottom);
+            final int width = mXs[mXs.length - 1], height = mYs[mYs.length - 1];
+            final float caretCenter = r + 1 + caretBefore;
+            final Path path = new Path();
+            final float[] radii = {radius, radius, radius, radius};
+            BubbleGeometry.buildPath(path, new ShapeBuffer(), new Rect(0, 0, width, height), radii,
+                    key.caretShape, caretWidth, caretHeight, position, 0, caretCenter);
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(Color.BLACK);
+            new Canvas(mBitmap).drawPath(path, paint);
+        }
+
+        /**
+         * Draws slices stretched to {@code bounds}
+         *
+         * @param dx  Scratch array, at least 6 elements
+         * @param dy  Scratch array, at least 6 elements
+         * @return {@code false} if bounds are too small for unscaled corners
+         */
+        boolean draw(@NonNull Canvas canvas, @NonNull Rect bounds, float caretOffset,
+                     float caretAbsOffset, @NonNull Paint paint, @NonNull int[] dx,
+                     @NonNull int[] dy, @NonNull Rect src, @NonNull RectF dst) {
+            if (!mapAxis(mXs, bounds.left, bounds.width(), caretOffset, caretAbsOffset, dx)) {
+                return false;
+            }
+            if (!mapAxis(mYs, bounds.top, bounds.height(), caretOffset, caretAbsOffset, dy)) {
+                return false;
+            }
+            final int nx = mXs.length, ny = mYs.length;
+            for (int j = 0; j < ny - 1; j++) {
+                if (dy[j + 1] <= dy[j]) continue;
+                for (int i = 0; i < nx - 1; i++) {
+                    if (dx[i + 1] <= dx[i]) continue;
+                    src.set(mXs[i], mYs[j], mXs[i + 1], mYs[j + 1]);
+                    dst.set(dx[i], dy[j], dx[i + 1], dy[j + 1]);
+                    canvas.drawBitmap(mBitmap, src, dst, paint);
+                }
+            }
+            return true;
+        }
+
+        private boolean mapAxis(int[] src, int start, int size, float caretOffset,
+                                float caretAbsOffset, int[] out) {
+            final int n = src.length;
+            final int fixedStart = src[1] - src[0], fixedEnd = src[n - 1] - src[n - 2];
+            out[0] = start;
+            out[n - 1] = start + size;
+            out[1] = start + fixedStart;
+            out[n - 2] = start + size - fixedEnd;
+            if (n == 4) return out[2] >= out[1];
+            final int caretSize = src[3] - src[2];
+            if (size < fixedStart + caretSize + fixedEnd) return false;
+            final float center = BubbleShapes.getCaretCenter(mRadius, mRadius, mCaretWidth, 0,
+                    size, caretOffset, caretAbsOffset);
+            int caretStart = Math.round(center - mCaretBefore);
+            caretStart = Math.max(fixedStart, Math.min(size - fixedEnd - caretSize, caretStart));
+            out[2] = start + caretStart;
+            out[3] = out[2] + caretSize;
+            return true;
+        }
+
+        private static int[] fixedAxis(int fixedStart, int fixedEnd) {
+            return new int[]{0, fixedStart, fixedStart + 1, fixedStart + 1 + fixedEnd};
+        }
+
+        private static int[] centeredAxis(int radius, int caretSize) {
+            return new int[]{0, radius, radius + 1, radius + 1 + caretSize,
+                    radius + 2 + caretSize, radius * 2 + 2 + caretSize};
+        }
+    }
+}
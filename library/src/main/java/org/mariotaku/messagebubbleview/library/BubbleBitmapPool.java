@@ -0,0 +1,131 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+
+import java.util.ArrayList;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Process wide pool of {@link Bitmap.Config#ARGB_8888} bitmaps for {@link BubbleRenderer}, so
+ * repeated exports and thumbnails don't allocate a new bitmap each time. On API 19+ a larger
+ * pooled bitmap is reconfigured to requested size.
+ */
+public final class BubbleBitmapPool {
+
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final ArrayList<Bitmap> sBitmaps = new ArrayList<>();
+    private static int sMaxBytes = DEFAULT_MAX_BYTES;
+    private static int sBytes;
+
+    private BubbleBitmapPool() {
+    }
+
+    /**
+     * @param maxBytes Max total size of pooled bitmaps, {@code 0} disables pooling
+     */
+    public static synchronized void setMaxBytes(int maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("maxBytes < 0");
+        sMaxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public static synchronized int getMaxBytes() {
+        return sMaxBytes;
+    }
+
+    public static synchronized int size() {
+        return sBitmaps.size();
+    }
+
+    public static synchronized void clear() {
+        sBitmaps.clear();
+        sBytes = 0;
+    }
+
+    /**
+     * @return Mutable, fully transparent bitmap of given size, from pool if possible
+     */
+    @NonNull
+    public static Bitmap obtain(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Empty bitmap size");
+        Bitmap bitmap = take(width, height);
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        // Pool only hands out other sizes where bitmaps can be reconfigured
+        if ((bitmap.getWidth() != width || bitmap.getHeight() != height)
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            reconfigure(bitmap, width, height);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Returns bitmap to pool, caller must not use it afterwards
+     */
+    public static void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        final int bytes = getAllocationByteCount(bitmap);
+        synchronized (BubbleBitmapPool.class) {
+            if (bytes > sMaxBytes || sBitmaps.contains(bitmap)) return;
+            sBitmaps.add(bitmap);
+            sBytes += bytes;
+            trimToSize(sMaxBytes);
+        }
+    }
+
+    private static synchronized Bitmap take(int width, int height) {
+        final boolean reconfigurable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT;
+        final int required = width * height * 4;
+        int best = -1, bestBytes = Integer.MAX_VALUE;
+        for (int i = 0, j = sBitmaps.size(); i < j; i++) {
+            final Bitmap bitmap = sBitmaps.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                best = i;
+                break;
+            }
+            if (!reconfigurable) continue;
+            final int bytes = getAllocationByteCount(bitmap);
+            if (bytes >= required && bytes < bestBytes) {
+                best = i;
+                bestBytes = bytes;
+            }
+        }
+        if (best < 0) return null;
+        final Bitmap bitmap = sBitmaps.remove(best);
+        sBytes -= getAllocationByteCount(bitmap);
+        return bitmap;
+    }
+
+    private static void trimToSize(int maxBytes) {
+        while (sBytes > maxBytes && !sBitmaps.isEmpty()) {
+            sBytes -= getAllocationByteCount(sBitmaps.remove(0));
+        }
+    }
+
+    private static int getAllocationByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return getAllocationByteCountKitKat(bitmap);
+        }
+        return bitmap.getByteCount();
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int getAllocationByteCountKitKat(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static void reconfigure(Bitmap bitmap, int width, int height) {
+        bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,1356 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.annotation.TargetApi;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.Property;
+import android.util.TypedValue;
+import android.view.Gravity;
+
+import org.mariotaku.messagebubbleview.geometry.BubbleShapes;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import androidx.annotation.Dimension;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.Px;
+import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.view.GravityCompat;
+import androidx.core.view.ViewCompat;
+
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM_LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM_RIGHT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP_LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP_RIGHT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.LEFT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.NONE;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RENDER_MODE_NINE_SLICE;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RENDER_MODE_PATH;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RENDER_MODE_ROUND_RECT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.TOP;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.VERTICAL;
+
+/**
+ * Message bubble shape, usable as background of any view. Bubble padding is reported by
+ * {@link #getPadding(Rect)}, so content of the host view stays clear of the caret.
+ * <p>
+ * Can be inflated from XML on API 24+ using its class name as tag, with attributes declared in
+ * {@code BubbleDrawable} styleable.
+ */
+public class BubbleDrawable extends Drawable {
+
+    /**
+     * Animates {@link #setCenterCaretOffset(float)}. Animated geometry is built into a path owned
+     * by this drawable instead of {@link BubblePathCache}, so frames don't allocate or evict
+     * cached shapes.
+     */
+    public static final Property<BubbleDrawable, Float> CENTER_CARET_OFFSET =
+            BubbleProperties.createFloat("centerCaretOffset", BubbleProperties.CENTER_CARET_OFFSET);
+    /**
+     * Animates {@link #setCenterCaretAbsOffset(float)}, see {@link #CENTER_CARET_OFFSET}
+     */
+    public static final Property<BubbleDrawable, Float> CENTER_CARET_ABS_OFFSET =
+            BubbleProperties.createFloat("centerCaretAbsOffset", BubbleProperties.CENTER_CARET_ABS_OFFSET);
+    /**
+     * Animates {@link #setCornerRadius(float)}, see {@link #CENTER_CARET_OFFSET}
+     */
+    public static final Property<BubbleDrawable, Float> CORNER_RADIUS =
+            BubbleProperties.createFloat("cornerRadius", BubbleProperties.CORNER_RADIUS);
+    /**
+     * Animates fill color without creating a {@link ColorStateList} per frame. Animated color
+     * holds until next state change or {@link #setColor(ColorStateList)}.
+     */
+    public static final Property<BubbleDrawable, Integer> COLOR =
+            BubbleProperties.createColor("color");
+
+    // Values of caretShape attribute
+    private static final int CARET_SHAPE_TRIANGLE = 0;
+    private static final int CARET_SHAPE_CURVED = 1;
+    private static final int CARET_SHAPE_ROUNDED = 2;
+
+    private final Paint mBubblePaint;
+    private final Paint mBorderPaint;
+    private final Rect mTempBounds = new Rect();
+    private final BubblePathCache.Key mPathKey = new BubblePathCache.Key();
+
+    private BubbleState mState;
+    private boolean mMutated;
+    private int mResolvedColor = Color.BLACK;
+    private int mResolvedBorderColor = Color.TRANSPARENT;
+    private int mAlpha = 255;
+
+    private Path mBubblePath;
+    private boolean mPathDirty = true;
+    private Path mAnimatedPath;
+    private ShapeBuffer mAnimatedShape;
+    private final float[] mInsetRadii = new float[4];
+    private boolean mGeometryAnimating;
+
+    private final RectF mBodyRect = new RectF();
+    private final RectF mCornerRect = new RectF();
+    private final float[] mCaretAnchor = new float[2];
+    private Path mCaretPath;
+    private boolean mShapeDirty = true, mShapeDecomposable;
+
+    private final BubbleAtlas.Key mSlicesKey = new BubbleAtlas.Key();
+    private final int[] mSliceXs = new int[6], mSliceYs = new int[6];
+    private final Rect mSliceSrc = new Rect();
+    private final RectF mSliceDst = new RectF();
+    private BubbleAtlas.Slices mSlices;
+    private boolean mSlicesDirty = true;
+
+    private final RectF mOutlineBody = new RectF();
+    private final RectF mOutlineCorner = new RectF();
+    private final float[] mOutlineAnchor = new float[2];
+    private float[] mOutlinePoints, mOutlineHull;
+    private Path mOutlinePath;
+    private boolean mOutlineDirty = true;
+
+    private BitmapShader mImageShader;
+    private Shader mGradientShader;
+    // Gradient span in bounds coordinates, NaN to span bounds
+    private float mGradientStart = Float.NaN, mGradientEnd = Float.NaN;
+    private final Matrix mShaderMatrix = new Matrix();
+    private boolean mShaderMatrixDirty = true;
+
+    // RippleDrawable on API 21+, pressed overlay drawn with mPressedPaint before
+    private Drawable mRipple;
+    private Paint mPressedPaint;
+    private boolean mPressed;
+    private boolean mRippleEnabled = true;
+    private final Callback mRippleCallback = new Callback() {
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+            invalidateSelf();
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+            scheduleSelf(what, when);
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+            unscheduleSelf(what);
+        }
+    };
+
+    public BubbleDrawable() {
+        this(new BubbleState());
+    }
+
+    public BubbleDrawable(@NonNull BubbleStyle style) {
+        this(new BubbleState());
+        setStyle(style);
+    }
+
+    private BubbleDrawable(BubbleState state) {
+        mState = state;
+        mBubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBorderPaint.setStyle(Paint.Style.STROKE);
+        // Miters at caret tip would reach past the half border width the path is inset by
+        mBorderPaint.setStrokeJoin(Paint.Join.ROUND);
+        updateColor();
+        updateBorderColor();
+        if (state.mGradient != null) {
+            mGradientShader = state.mGradient.createShader();
+        }
+        updateImageShader();
+        updateRipple();
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        final Rect bounds = getBounds();
+        if (bounds.isEmpty()) return;
+        if (BubbleMetrics.sEnabled) {
+            BubbleMetrics.recordDraw();
+        }
+        drawBubble(canvas, bounds);
+        if (mState.mRippleColor != null) {
+            drawRipple(canvas, bounds);
+        }
+        // Animated geometry lasts one frame, anything rebuilt without a new animated value is
+        // cached again
+        mGeometryAnimating = false;
+    }
+
+    private void drawBubble(Canvas canvas, Rect bounds) {
+        if (mShaderMatrixDirty) {
+            if (mImageShader != null) {
+                updateImageMatrix(bounds);
+            } else if (mGradientShader != null) {
+                updateGradientMatrix(bounds);
+            }
+            mShaderMatrixDirty = false;
+        }
+        final boolean border = hasBorder();
+        // Shaders are mapped to bounds and border strokes one continuous outline, pieces drawn
+        // at their own offsets would break both
+        final int renderMode = mBubblePaint.getShader() != null || border ? RENDER_MODE_PATH
+                : mState.mRenderMode;
+        switch (renderMode) {
+            case RENDER_MODE_ROUND_RECT: {
+                if (drawShape(canvas, bounds)) return;
+                break;
+            }
+            case RENDER_MODE_NINE_SLICE: {
+                // Every animated radius would rasterize a new atlas entry
+                if (!mGeometryAnimating && drawSlices(canvas, bounds)) return;
+                break;
+            }
+        }
+        ensurePath();
+        if (border) {
+            // Path is inset by half border width, so stroke ends exactly at bounds
+            final float inset = getPathInset();
+            final int saveCount = canvas.save();
+            canvas.translate(bounds.left + inset, bounds.top + inset);
+            canvas.drawPath(mBubblePath, mBubblePaint);
+            mBorderPaint.setStrokeWidth(mState.mBorderWidth);
+            canvas.drawPath(mBubblePath, mBorderPaint);
+            canvas.restoreToCount(saveCount);
+        } else if (bounds.left == 0 && bounds.top == 0) {
+            canvas.drawPath(mBubblePath, mBubblePaint);
+        } else {
+            final int saveCount = canvas.save();
+            canvas.translate(bounds.left, bounds.top);
+            canvas.drawPath(mBubblePath, mBubblePaint);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * Ripple masked by bubble shape, without an offscreen layer. On API 23+ ripple masks itself
+     * with a bitmap shader drawn from {@link RippleMask} once per geometry change, API 21 and 22
+     * would use a layer for that, so bubble path clips an unmasked ripple instead.
+     */
+    private void drawRipple(Canvas canvas, Rect bounds) {
+        if (mRipple != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            mRipple.draw(canvas);
+            return;
+        }
+        if (mRipple == null && !mPressed) return;
+        ensurePath();
+        final float inset = getPathInset();
+        final int saveCount = canvas.save();
+        canvas.translate(bounds.left + inset, bounds.top + inset);
+        if (mRipple != null) {
+            canvas.clipPath(mBubblePath);
+            canvas.translate(-bounds.left - inset, -bounds.top - inset);
+            mRipple.draw(canvas);
+        } else {
+            canvas.drawPath(mBubblePath, mPressedPaint);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    public boolean isStateful() {
+        return (mState.mColor != null && mState.mColor.isStateful())
+                || (mState.mBorderColor != null && mState.mBorderColor.isStateful())
+                || mState.mRippleColor != null;
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        final boolean changed = updateColor() | updateBorderColor();
+        if (changed && BubbleMetrics.sEnabled) {
+            BubbleMetrics.recordStateInvalidation();
+        }
+        return updatePressed(state) || changed;
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        if (mRipple != null) {
+            mRipple.setBounds(bounds);
+        }
+        mShaderMatrixDirty = true;
+        invalidatePath();
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void setHotspot(float x, float y) {
+        if (mRipple != null) {
+            mRipple.setHotspot(x, y);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void setHotspotBounds(int left, int top, int right, int bottom) {
+        if (mRipple != null) {
+            mRipple.setHotspotBounds(left, top, right, bottom);
+        }
+    }
+
+    @Override
+    public void jumpToCurrentState() {
+        super.jumpToCurrentState();
+        if (mRipple != null) {
+            mRipple.jumpToCurrentState();
+        }
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        final boolean changed = super.setVisible(visible, restart);
+        if (mRipple != null) {
+            mRipple.setVisible(visible, restart);
+        }
+        return changed;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mAlpha == alpha) return;
+        mAlpha = alpha;
+        applyPaintColor();
+        applyBorderPaintColor();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return mAlpha;
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter cf) {
+        if (mBubblePaint.getColorFilter() == cf) return;
+        mBubblePaint.setColorFilter(cf);
+        mBorderPaint.setColorFilter(cf);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        if (mBubblePaint.getAlpha() == 0 && mBubblePaint.getColorFilter() == null) {
+            return PixelFormat.TRANSPARENT;
+        }
+        // Caret leaves transparent area next to it, so do rounded corners
+        if (isPaintOpaque() && mState.mAbsoluteCaretPosition == NONE
+                && BubbleShapes.getMaxRadius(mState.mAbsoluteCornerRadii) <= 0
+                && (!hasBorder() || mBorderPaint.getAlpha() == 255)) {
+            return PixelFormat.OPAQUE;
+        }
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public ColorFilter getColorFilter() {
+        return mBubblePaint.getColorFilter();
+    }
+
+    @Override
+    public boolean getPadding(@NonNull Rect padding) {
+        final BubbleState state = mState;
+        int paddingGravity;
+        if ((state.mAbsoluteCaretPosition & VERTICAL) != 0) {
+            paddingGravity = state.mAbsoluteCaretPosition & Gravity.VERTICAL_GRAVITY_MASK;
+        } else {
+            paddingGravity = state.mAbsoluteCaretPosition & Gravity.HORIZONTAL_GRAVITY_MASK;
+        }
+        switch (paddingGravity) {
+            case LEFT:
+                padding.set(Math.round(state.mCaretWidth), 0, 0, 0);
+                break;
+            case RIGHT:
+                padding.set(0, 0, Math.round(state.mCaretWidth), 0);
+                break;
+            case BOTTOM:
+                padding.set(0, 0, 0, Math.round(state.mCaretHeight));
+                break;
+            case TOP:
+                padding.set(0, Math.round(state.mCaretHeight), 0, 0);
+                break;
+            default:
+                padding.set(0, 0, 0, 0);
+                break;
+        }
+        return true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void getOutline(@NonNull Outline outline) {
+        final BubbleState state = mState;
+        final Rect bounds = getBounds();
+        if (state.mClipOutline) {
+            // Content stays inside padding clear of caret, so body is all children need
+            setBodyOutline(outline, bounds);
+            return;
+        }
+        if (!state.mOutlineEnabled) {
+            outline.setRect(bounds);
+            return;
+        }
+        if (state.mAbsoluteCaretPosition == NONE && BubbleShapes.isUniform(state.mAbsoluteCornerRadii)) {
+            outline.setRoundRect(bounds, state.mAbsoluteCornerRadii[0]);
+            return;
+        }
+        if (BubbleShapes.isCornerCaret(state.mAbsoluteCaretPosition)) {
+            // Hull would add a wedge from caret tip to far corner, slanting whole shadow side
+            setBodyOutline(outline, bounds);
+            return;
+        }
+        if (mOutlineDirty) {
+            if (mOutlinePath == null) {
+                mOutlinePath = new Path();
+            }
+            final int points = BubbleGeometry.BODY_OUTLINE_POINTS
+                    + BubbleShapes.getCaretPointCount(state.mCaretShape,
+                    state.mCaretWidth < 0 ? bounds.width() : state.mCaretWidth,
+                    state.mCaretHeight < 0 ? bounds.height() : state.mCaretHeight,
+                    state.mAbsoluteCaretPosition);
+            if (mOutlinePoints == null || mOutlinePoints.length < points * 2) {
+                mOutlinePoints = new float[points * 2];
+                mOutlineHull = new float[points * 2 + 2];
+            }
+            BubbleGeometry.buildOutlinePath(mOutlinePath, mOutlineBody, mOutlineCorner,
+                    mOutlineAnchor, mOutlinePoints, mOutlineHull, bounds.left, bounds.top,
+                    bounds.width(), bounds.height(), state.mAbsoluteCornerRadii, state.mCaretShape,
+                    state.mCaretWidth, state.mCaretHeight, state.mAbsoluteCaretPosition,
+                    state.mCenterCaretOffset, state.mCenterCaretAbsOffset);
+            mOutlineDirty = false;
+        }
+        outline.setConvexPath(mOutlinePath);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void setBodyOutline(Outline outline, Rect bounds) {
+        final BubbleState state = mState;
+        final float caretWidth = state.mCaretWidth < 0 ? bounds.width() : state.mCaretWidth;
+        final float caretHeight = state.mCaretHeight < 0 ? bounds.height() : state.mCaretHeight;
+        final RectF body = mOutlineBody;
+        BubbleGeometry.decompose(body, mOutlineCorner, mOutlineAnchor, bounds.width(),
+                bounds.height(), state.mAbsoluteCornerRadii, caretWidth, caretHeight,
+                state.mAbsoluteCaretPosition, state.mCenterCaretOffset,
+                state.mCenterCaretAbsOffset);
+        // Round rect outline has one radius, smaller joined corners clip slightly more
+        outline.setRoundRect(bounds.left + Math.round(body.left),
+                bounds.top + Math.round(body.top), bounds.left + Math.round(body.right),
+                bounds.top + Math.round(body.bottom),
+                BubbleShapes.getMaxRadius(state.mAbsoluteCornerRadii));
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+        return super.getChangingConfigurations() | mState.mChangingConfigurations;
+    }
+
+    @Override
+    public boolean onLayoutDirectionChanged(int layoutDirection) {
+        final int absolute = GravityCompat.getAbsoluteGravity(mState.mCaretPosition, layoutDirection);
+        final boolean radiiChanged = mState.resolveCornerRadii(layoutDirection);
+        if (absolute == mState.mAbsoluteCaretPosition && !radiiChanged) return false;
+        mState.mAbsoluteCaretPosition = absolute;
+        invalidatePath();
+        return true;
+    }
+
+    @Override
+    public void inflate(@NonNull Resources r, @NonNull XmlPullParser parser,
+                        @NonNull AttributeSet attrs, @Nullable Resources.Theme theme)
+            throws XmlPullParserException, IOException {
+        super.inflate(r, parser, attrs, theme);
+        final TypedArray a;
+        if (theme != null) {
+            a = theme.obtainStyledAttributes(attrs, R.styleable.BubbleDrawable, 0, 0);
+        } else {
+            a = r.obtainAttributes(attrs, R.styleable.BubbleDrawable);
+        }
+        final BubbleState state = mState;
+        state.mChangingConfigurations |= a.getChangingConfigurations();
+        state.mCornerRadius = a.getDimension(R.styleable.BubbleDrawable_cornerRadius, state.mCornerRadius);
+        final ColorStateList color = a.getColorStateList(R.styleable.BubbleDrawable_bubbleColor);
+        if (color != null) {
+            state.mColor = color;
+        }
+        state.mCaretPosition = a.getInt(R.styleable.BubbleDrawable_caretPosition, state.mCaretPosition);
+        final int layoutDirection = DrawableCompat.getLayoutDirection(this);
+        state.mAbsoluteCaretPosition = GravityCompat.getAbsoluteGravity(state.mCaretPosition,
+                layoutDirection);
+        state.resolveCornerRadii(layoutDirection);
+        if (a.hasValue(R.styleable.BubbleDrawable_caretWidth) && a.hasValue(R.styleable.BubbleDrawable_caretHeight)) {
+            final DisplayMetrics dm = r.getDisplayMetrics();
+            final TypedValue tv = new TypedValue();
+            state.mCaretWidth = getCaretDimension(a, R.styleable.BubbleDrawable_caretWidth, dm, tv);
+            state.mCaretHeight = getCaretDimension(a, R.styleable.BubbleDrawable_caretHeight, dm, tv);
+        } else {
+            final float w = r.getDisplayMetrics().density * 12;
+            state.mCaretWidth = Math.round(w);
+            state.mCaretHeight = Math.round(w * 0.75f);
+        }
+        state.mRenderMode = a.getInt(R.styleable.BubbleDrawable_renderMode, state.mRenderMode);
+        state.mBorderWidth = a.getDimensionPixelSize(R.styleable.BubbleDrawable_bubbleBorderWidth, state.mBorderWidth);
+        final ColorStateList borderColor = a.getColorStateList(R.styleable.BubbleDrawable_bubbleBorderColor);
+        if (borderColor != null) {
+            state.mBorderColor = borderColor;
+        }
+        final ColorStateList rippleColor = a.getColorStateList(R.styleable.BubbleDrawable_bubbleRippleColor);
+        if (rippleColor != null) {
+            state.mRippleColor = rippleColor;
+        }
+        final CaretShape caretShape = getCaretShape(a.getInt(R.styleable.BubbleDrawable_caretShape, -1));
+        if (caretShape != null) {
+            state.mCaretShape = caretShape;
+        }
+        a.recycle();
+        updateColor();
+        updateBorderColor();
+        updateRipple();
+        mShaderMatrixDirty = true;
+        invalidatePath();
+    }
+
+    @Nullable
+    @Override
+    public ConstantState getConstantState() {
+        mState.mChangingConfigurations = getChangingConfigurations();
+        return mState;
+    }
+
+    @NonNull
+    @Override
+    public Drawable mutate() {
+        if (!mMutated && super.mutate() == this) {
+            mState = new BubbleState(mState);
+            mMutated = true;
+        }
+        return this;
+    }
+
+    /**
+     * Applies all bubble properties with single path rebuild. Only properties drawable knows
+     * about are used, {@link BubbleStyle#getWrapContentMaxWidthPercent()} is ignored.
+     */
+    public void setStyle(@NonNull BubbleStyle style) {
+        setStyle(style, DrawableCompat.getLayoutDirection(this));
+    }
+
+    void setStyle(@NonNull BubbleStyle style, int layoutDirection) {
+        final BubbleState state = mState;
+        state.mCaretPosition = style.getCaretPosition();
+        state.mAbsoluteCaretPosition = GravityCompat.getAbsoluteGravity(state.mCaretPosition,
+                layoutDirection);
+        state.mCaretWidth = style.getCaretWidth();
+        state.mCaretHeight = style.getCaretHeight();
+        state.mCaretShape = style.getCaretShape();
+        state.mCornerRadius = style.getCornerRadius();
+        state.mCornerRadii = copyOrNull(style.peekCornerRadii());
+        state.resolveCornerRadii(layoutDirection);
+        state.mCenterCaretOffset = style.getCenterCaretOffset();
+        state.mCenterCaretAbsOffset = style.getCenterCaretAbsOffset();
+        state.mColor = style.getBubbleColor();
+        state.mBorderWidth = style.getBorderWidth();
+        state.mBorderColor = style.getBorderColor();
+        updateGradient(style.getGradient());
+        if (state.mRippleColor != style.getRippleColor()) {
+            state.mRippleColor = style.getRippleColor();
+            updateRipple();
+            updatePressed(getState());
+        }
+        updateColor();
+        updateBorderColor();
+        mShaderMatrixDirty = true;
+        invalidateGeometry(false);
+    }
+
+    @NonNull
+    public BubbleStyle.Builder buildStyle(@NonNull BubbleStyle.Builder builder) {
+        final BubbleState state = mState;
+        builder.setCaretPosition(state.mCaretPosition)
+                .setCaretSize(Math.round(state.mCaretWidth), Math.round(state.mCaretHeight))
+                .setCaretShape(state.mCaretShape)
+                .setCornerRadius(state.mCornerRadius)
+                .setCenterCaretOffset(state.mCenterCaretOffset)
+                .setCenterCaretAbsOffset(state.mCenterCaretAbsOffset)
+                .setBubbleColor(state.mColor)
+                .setBorderWidth(state.mBorderWidth)
+                .setBorderColor(state.mBorderColor)
+                .setGradient(state.mGradient)
+                .setRippleColor(state.mRippleColor);
+        final float[] radii = state.mCornerRadii;
+        if (radii != null) {
+            builder.setCornerRadii(radii[0], radii[1], radii[2], radii[3]);
+        }
+        return builder;
+    }
+
+    @Nullable
+    public ColorStateList getColor() {
+        return mState.mColor;
+    }
+
+    public void setColor(@Nullable ColorStateList color) {
+        mState.mColor = color;
+        if (updateColor()) {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * Sets width of border stroked along bubble outline, inside bounds. Bordered bubbles always
+     * draw as one path, see {@link MessageBubbleView#RENDER_MODE_PATH}.
+     */
+    public void setBorderWidth(@Px int width) {
+        if (mState.mBorderWidth == width) return;
+        mState.mBorderWidth = width;
+        mShaderMatrixDirty = true;
+        invalidatePath();
+    }
+
+    @Px
+    public int getBorderWidth() {
+        return mState.mBorderWidth;
+    }
+
+    /**
+     * Sets color of touch feedback masked by bubble shape, {@code null} for none. On API 21+
+     * it's a ripple following touch hotspot and animated on render thread, earlier versions
+     * overlay this color while pressed.
+     */
+    public void setRippleColor(@Nullable ColorStateList color) {
+        mState.mRippleColor = color;
+        updateRipple();
+        updatePressed(getState());
+        invalidateSelf();
+    }
+
+    @Nullable
+    public ColorStateList getRippleColor() {
+        return mState.mRippleColor;
+    }
+
+    public void setBorderColor(@Nullable ColorStateList color) {
+        final boolean hadBorder = hasBorder();
+        mState.mBorderColor = color;
+        final boolean colorChanged = updateBorderColor();
+        if (hadBorder != hasBorder()) {
+            mShaderMatrixDirty = true;
+            invalidatePath();
+        } else if (colorChanged) {
+            invalidateSelf();
+        }
+    }
+
+    @Nullable
+    public ColorStateList getBorderColor() {
+        return mState.mBorderColor;
+    }
+
+    public void setCaretSize(@Px int width, @Px int height) {
+        mState.mCaretWidth = width;
+        mState.mCaretHeight = height;
+        invalidatePath();
+    }
+
+    /**
+     * Sets shape of caret, e.g. {@link CaretShape#CURVED} for tails. Doesn't change padding.
+     */
+    public void setCaretShape(@NonNull CaretShape shape) {
+        if (mState.mCaretShape == shape) return;
+        mState.mCaretShape = shape;
+        invalidatePath();
+    }
+
+    @NonNull
+    public CaretShape getCaretShape() {
+        return mState.mCaretShape;
+    }
+
+    /**
+     * Relative positions are resolved with layout direction of this drawable
+     */
+    public void setCaretPosition(@MessageBubbleView.CaretPosition int position) {
+        setCaretPosition(position, GravityCompat.getAbsoluteGravity(position,
+                DrawableCompat.getLayoutDirection(this)));
+    }
+
+    void setCaretPosition(int position, int absolute) {
+        mState.mCaretPosition = position;
+        mState.mAbsoluteCaretPosition = absolute;
+        invalidatePath();
+    }
+
+    @MessageBubbleView.CaretPosition
+    public int getCaretPosition() {
+        return mState.mCaretPosition;
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mState.mRenderMode = mode;
+        invalidatePath();
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mState.mRenderMode;
+    }
+
+    public void setCenterCaretOffset(float offset) {
+        setCenterCaretOffset(offset, false);
+    }
+
+    void setCenterCaretOffset(float offset, boolean animating) {
+        mState.mCenterCaretOffset = offset;
+        invalidateGeometry(animating);
+    }
+
+    public float getCenterCaretOffset() {
+        return mState.mCenterCaretOffset;
+    }
+
+    public float getCenterCaretAbsOffset() {
+        return mState.mCenterCaretAbsOffset;
+    }
+
+    public void setCenterCaretAbsOffset(float centerCaretAbsOffset) {
+        setCenterCaretAbsOffset(centerCaretAbsOffset, false);
+    }
+
+    void setCenterCaretAbsOffset(float centerCaretAbsOffset, boolean animating) {
+        mState.mCenterCaretAbsOffset = centerCaretAbsOffset;
+        invalidateGeometry(animating);
+    }
+
+    public void setCornerRadius(@Dimension float radius) {
+        setCornerRadius(radius, false);
+    }
+
+    void setCornerRadius(float radius, boolean animating) {
+        mState.mCornerRadius = radius;
+        mState.mCornerRadii = null;
+        mState.resolveCornerRadii(DrawableCompat.getLayoutDirection(this));
+        invalidateGeometry(animating);
+    }
+
+    /**
+     * Corner radius, or radius of top start corner if {@link #setCornerRadii} was used
+     */
+    @Dimension
+    public float getCornerRadius() {
+        return mState.mCornerRadii != null ? mState.mCornerRadii[0] : mState.mCornerRadius;
+    }
+
+    /**
+     * Sets radius of each corner, so consecutive messages of same sender can be joined with
+     * smaller radii on sides facing each other. Start and end are resolved with layout direction
+     * of this drawable. Every combination of radii gets its own {@link BubblePathCache} entry.
+     */
+    public void setCornerRadii(@Dimension float topStart, @Dimension float topEnd,
+                               @Dimension float bottomEnd, @Dimension float bottomStart) {
+        setCornerRadii(topStart, topEnd, bottomEnd, bottomStart,
+                DrawableCompat.getLayoutDirection(this));
+    }
+
+    void setCornerRadii(float topStart, float topEnd, float bottomEnd, float bottomStart,
+                        int layoutDirection) {
+        float[] radii = mState.mCornerRadii;
+        if (radii == null) {
+            radii = mState.mCornerRadii = new float[4];
+        }
+        radii[0] = topStart;
+        radii[1] = topEnd;
+        radii[2] = bottomEnd;
+        radii[3] = bottomStart;
+        mState.resolveCornerRadii(layoutDirection);
+        invalidateGeometry(false);
+    }
+
+    /**
+     * @return Copy of radii in top start, top end, bottom end, bottom start order, or
+     * {@code null} if all corners use {@link #getCornerRadius()}
+     */
+    @Nullable
+    public float[] getCornerRadii() {
+        return copyOrNull(mState.mCornerRadii);
+    }
+
+    public void setOutlineEnabled(boolean outlineEnabled) {
+        mState.mOutlineEnabled = outlineEnabled;
+        invalidateSelf();
+    }
+
+    public boolean isOutlineEnabled() {
+        return mState.mOutlineEnabled;
+    }
+
+    /**
+     * Fills bubble with {@code image}, scaled to cover bounds and center cropped. Shader and its
+     * matrix are only rebuilt when image or bounds change, image bubbles always draw as one path.
+     * Image alpha is modulated by bubble color alpha.
+     */
+    public void setImageBitmap(@Nullable Bitmap image) {
+        if (mState.mImage == image) return;
+        mState.mImage = image;
+        updateImageShader();
+        invalidateSelf();
+    }
+
+    @Nullable
+    public Bitmap getImageBitmap() {
+        return mState.mImage;
+    }
+
+    /**
+     * Fills bubble with {@code gradient}, spanning bounds until
+     * {@link #setGradientSpan(float, float)} places it. Shader is only created when gradient
+     * changes. Image set by {@link #setImageBitmap(Bitmap)} takes precedence, gradient alpha is
+     * modulated by bubble color alpha.
+     */
+    public void setGradient(@Nullable BubbleGradient gradient) {
+        if (!updateGradient(gradient)) return;
+        invalidateSelf();
+    }
+
+    @Nullable
+    public BubbleGradient getGradient() {
+        return mState.mGradient;
+    }
+
+    /**
+     * Places gradient between {@code start} and {@code end}, in same coordinates as bounds,
+     * e.g. window top and bottom relative to host view. Only shader matrix changes, so this is
+     * cheap enough to call every frame.
+     */
+    public void setGradientSpan(float start, float end) {
+        if (mGradientStart == start && mGradientEnd == end) return;
+        mGradientStart = start;
+        mGradientEnd = end;
+        if (mGradientShader == null) return;
+        mShaderMatrixDirty = true;
+        invalidateSelf();
+    }
+
+    /**
+     * Reports bubble body, without caret, as a round rect outline. Unlike path outlines it can
+     * be used with {@link android.view.View#setClipToOutline(boolean)} to clip content.
+     */
+    public void setClipOutline(boolean clipOutline) {
+        if (mState.mClipOutline == clipOutline) return;
+        mState.mClipOutline = clipOutline;
+        invalidateSelf();
+    }
+
+    public boolean isClipOutline() {
+        return mState.mClipOutline;
+    }
+
+    /**
+     * Doesn't invalidate, so state changes only redraw through return value of
+     * {@link #onStateChange(int[])}
+     *
+     * @return {@code true} if resolved color changed
+     */
+    private boolean updateColor() {
+        final ColorStateList color = mState.mColor;
+        if (color == null) return false;
+        return setResolvedColor(color.getColorForState(getState(), color.getDefaultColor()));
+    }
+
+    private boolean setResolvedColor(int color) {
+        if (mResolvedColor == color) return false;
+        mResolvedColor = color;
+        applyPaintColor();
+        return true;
+    }
+
+    private void applyPaintColor() {
+        mBubblePaint.setColor(mResolvedColor);
+        if (mAlpha != 255) {
+            mBubblePaint.setAlpha(Color.alpha(mResolvedColor) * mAlpha / 255);
+        }
+    }
+
+    /**
+     * @return {@code true} if resolved border color changed
+     */
+    private boolean updateBorderColor() {
+        final ColorStateList color = mState.mBorderColor;
+        final int resolved = color != null ? color.getColorForState(getState(),
+                color.getDefaultColor()) : Color.TRANSPARENT;
+        if (mResolvedBorderColor == resolved) return false;
+        mResolvedBorderColor = resolved;
+        applyBorderPaintColor();
+        return true;
+    }
+
+    private void applyBorderPaintColor() {
+        mBorderPaint.setColor(mResolvedBorderColor);
+        if (mAlpha != 255) {
+            mBorderPaint.setAlpha(Color.alpha(mResolvedBorderColor) * mAlpha / 255);
+        }
+    }
+
+    private boolean hasBorder() {
+        return mState.mBorderWidth > 0 && mState.mBorderColor != null;
+    }
+
+    /**
+     * Bubble path is built inset by this much on every side
+     */
+    private float getPathInset() {
+        return hasBorder() ? mState.mBorderWidth / 2f : 0;
+    }
+
+    /**
+     * Disables animated ripple for drawables without a view, pressed overlay drawn before
+     * API 21 is used instead. Ripple animators need a Looper thread and a callback to redraw.
+     */
+    void setRippleEnabled(boolean enabled) {
+        if (mRippleEnabled == enabled) return;
+        mRippleEnabled = enabled;
+        updateRipple();
+        updatePressed(getState());
+        invalidateSelf();
+    }
+
+    private void updateRipple() {
+        final ColorStateList color = mState.mRippleColor;
+        if (color == null || !mRippleEnabled
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            if (mRipple != null) {
+                mRipple.setCallback(null);
+                mRipple = null;
+            }
+            return;
+        }
+        if (mRipple == null) {
+            mRipple = createRipple(color);
+        } else {
+            setRippleDrawableColor(mRipple, color);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private Drawable createRipple(ColorStateList color) {
+        final Drawable mask = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? new RippleMask() : null;
+        final RippleDrawable ripple = new RippleDrawable(color, null, mask);
+        ripple.setCallback(mRippleCallback);
+        ripple.setBounds(getBounds());
+        ripple.setState(getState());
+        ripple.setVisible(isVisible(), false);
+        return ripple;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void setRippleDrawableColor(Drawable ripple, ColorStateList color) {
+        ((RippleDrawable) ripple).setColor(color);
+    }
+
+    /**
+     * @return {@code true} if ripple, or pressed overlay shown before API 21, changed
+     */
+    private boolean updatePressed(int[] state) {
+        if (mRipple != null) return mRipple.setState(state);
+        final ColorStateList color = mState.mRippleColor;
+        boolean pressed = false;
+        if (color != null) {
+            for (int s : state) {
+                if (s == android.R.attr.state_pressed) {
+                    pressed = true;
+                    break;
+                }
+            }
+        }
+        boolean changed = mPressed != pressed;
+        mPressed = pressed;
+        if (pressed) {
+            if (mPressedPaint == null) {
+                mPressedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            }
+            final int pressedColor = color.getColorForState(state, color.getDefaultColor());
+            changed |= mPressedPaint.getColor() != pressedColor;
+            mPressedPaint.setColor(pressedColor);
+        }
+        return changed;
+    }
+
+    int getAnimatedColor() {
+        return mResolvedColor;
+    }
+
+    void setAnimatedColor(int color) {
+        if (setResolvedColor(color)) {
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * @param animating {@code true} if geometry changes every frame and isn't worth caching
+     */
+    private void invalidateGeometry(boolean animating) {
+        invalidatePath();
+        mGeometryAnimating = animating;
+    }
+
+    /**
+     * Marks bubble geometry as stale, path will be rebuilt on next {@link #draw(Canvas)}
+     */
+    private void invalidatePath() {
+        mGeometryAnimating = false;
+        mPathDirty = true;
+        mShapeDirty = true;
+        mSlicesDirty = true;
+        mOutlineDirty = true;
+        if (mRipple != null) {
+            // Makes ripple redraw its mask
+            mRipple.invalidateSelf();
+        }
+        invalidateSelf();
+    }
+
+    private void ensurePath() {
+        if (mPathDirty) {
+            updatePath();
+            mPathDirty = false;
+        }
+    }
+
+    /**
+     * @return {@code true} if gradient changed
+     */
+    private boolean updateGradient(@Nullable BubbleGradient gradient) {
+        final BubbleGradient current = mState.mGradient;
+        if (current == null ? gradient == null : current.equals(gradient)) return false;
+        mState.mGradient = gradient;
+        mGradientShader = gradient != null ? gradient.createShader() : null;
+        if (mImageShader == null) {
+            mBubblePaint.setShader(mGradientShader);
+            mShaderMatrixDirty = true;
+        }
+        return true;
+    }
+
+    private void updateImageShader() {
+        final Bitmap image = mState.mImage;
+        if (image == null) {
+            mImageShader = null;
+            mBubblePaint.setShader(mGradientShader);
+            mBubblePaint.setFilterBitmap(false);
+            mShaderMatrixDirty = true;
+            return;
+        }
+        mImageShader = new BitmapShader(image, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        mBubblePaint.setShader(mImageShader);
+        mBubblePaint.setFilterBitmap(true);
+        mShaderMatrixDirty = true;
+    }
+
+    /**
+     * Center crop, relative to bubble path origin
+     */
+    private void updateImageMatrix(Rect bounds) {
+        final Bitmap image = mState.mImage;
+        final int width = bounds.width(), height = bounds.height();
+        final int imageWidth = image.getWidth(), imageHeight = image.getHeight();
+        final float scale = Math.max((float) width / imageWidth, (float) height / imageHeight);
+        final float inset = getPathInset();
+        mShaderMatrix.setScale(scale, scale);
+        mShaderMatrix.postTranslate((width - imageWidth * scale) / 2 - inset,
+                (height - imageHeight * scale) / 2 - inset);
+        mImageShader.setLocalMatrix(mShaderMatrix);
+    }
+
+    /**
+     * Scales unit gradient to its span, relative to bubble path origin
+     */
+    private void updateGradientMatrix(Rect bounds) {
+        float start = mGradientStart, end = mGradientEnd;
+        if (Float.isNaN(start) || Float.isNaN(end)) {
+            start = bounds.top;
+            end = bounds.bottom;
+        }
+        final float inset = getPathInset();
+        mShaderMatrix.setScale(1, end - start);
+        mShaderMatrix.postTranslate(0, start - bounds.top - inset);
+        mGradientShader.setLocalMatrix(mShaderMatrix);
+    }
+
+    /**
+     * Overlapping body pieces would blend twice with translucent paint
+     */
+    private boolean isPaintOpaque() {
+        final BubbleState state = mState;
+        if (mBubblePaint.getAlpha() != 255 || mBubblePaint.getColorFilter() != null) return false;
+        if (state.mImage != null) return !state.mImage.hasAlpha();
+        return state.mGradient == null || state.mGradient.isOpaque();
+    }
+
+    private boolean drawShape(Canvas canvas, Rect bounds) {
+        if (!isPaintOpaque()) return false;
+        if (mShapeDirty) {
+            updateShape();
+            mShapeDirty = false;
+        }
+        if (!mShapeDecomposable) return false;
+        final float radius = mState.mAbsoluteCornerRadii[0];
+        final int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        canvas.drawRoundRect(mBodyRect, radius, radius, mBubblePaint);
+        if (!mCornerRect.isEmpty()) {
+            canvas.drawRect(mCornerRect, mBubblePaint);
+        }
+        if (mCaretPath != null) {
+            canvas.translate(mCaretAnchor[0], mCaretAnchor[1]);
+            canvas.drawPath(mCaretPath, mBubblePaint);
+        }
+        canvas.restoreToCount(saveCount);
+        return true;
+    }
+
+    private boolean drawSlices(Canvas canvas, Rect bounds) {
+        final BubbleState state = mState;
+        // Slices are cut assuming every corner has same radius
+        if (!BubbleShapes.isUniform(state.mAbsoluteCornerRadii)) return false;
+        if (mSlicesDirty) {
+            mSlicesKey.set(state.mAbsoluteCornerRadii[0], state.mCaretShape, state.mCaretWidth,
+                    state.mCaretHeight, state.mAbsoluteCaretPosition);
+            mSlices = BubbleAtlas.obtain(mSlicesKey);
+            mSlicesDirty = false;
+        }
+        return mSlices != null && mSlices.draw(canvas, bounds, state.mCenterCaretOffset,
+                state.mCenterCaretAbsOffset, mBubblePaint, mSliceXs, mSliceYs, mSliceSrc,
+                mSliceDst);
+    }
+
+    private void updateShape() {
+        final BubbleState state = mState;
+        final Rect bounds = getBounds();
+        mShapeDecomposable = BubbleGeometry.decompose(mBodyRect, mCornerRect, mCaretAnchor,
+                bounds.width(), bounds.height(), state.mAbsoluteCornerRadii, state.mCaretWidth,
+                state.mCaretHeight, state.mAbsoluteCaretPosition, state.mCenterCaretOffset,
+                state.mCenterCaretAbsOffset);
+        if (!mShapeDecomposable || state.mAbsoluteCaretPosition == NONE) {
+            mCaretPath = null;
+            return;
+        }
+        mPathKey.setCaret(state.mCaretShape, state.mCaretWidth, state.mCaretHeight,
+                state.mAbsoluteCaretPosition);
+        mCaretPath = BubblePathCache.obtain(mPathKey);
+    }
+
+    @Nullable
+    private static float[] copyOrNull(@Nullable float[] array) {
+        return array != null ? array.clone() : null;
+    }
+
+    /**
+     * @return Caret shape of {@code caretShape} attribute value, or {@code null} if unset
+     */
+    @Nullable
+    static CaretShape getCaretShape(int value) {
+        switch (value) {
+            case CARET_SHAPE_TRIANGLE:
+                return CaretShape.TRIANGLE;
+            case CARET_SHAPE_CURVED:
+                return CaretShape.CURVED;
+            case CARET_SHAPE_ROUNDED:
+                return CaretShape.ROUNDED;
+        }
+        return null;
+    }
+
+    static int getCaretDimension(TypedArray a, int index, DisplayMetrics dm, TypedValue tv) {
+        a.getValue(index, tv);
+        if (tv.type == TypedValue.TYPE_DIMENSION) {
+            return TypedValue.complexToDimensionPixelSize(tv.data, dm);
+        }
+        return tv.data;
+    }
+
+    private void updatePath() {
+        final BubbleState state = mState;
+        final Rect bounds = getBounds();
+        int width = bounds.width(), height = bounds.height();
+        float[] radii = state.mAbsoluteCornerRadii;
+        if (hasBorder()) {
+            // Shrink shape by half border width on every side, stroke covers the rest
+            final int borderWidth = state.mBorderWidth;
+            width = Math.max(0, width - borderWidth);
+            height = Math.max(0, height - borderWidth);
+            for (int i = 0; i < 4; i++) {
+                mInsetRadii[i] = Math.max(0, radii[i] - borderWidth / 2f);
+            }
+            radii = mInsetRadii;
+        }
+        if (mGeometryAnimating) {
+            if (mAnimatedPath == null) {
+                mAnimatedPath = new Path();
+                mAnimatedShape = new ShapeBuffer();
+            }
+            mTempBounds.set(0, 0, width, height);
+            final boolean metrics = BubbleMetrics.sEnabled;
+            final long start = metrics ? System.nanoTime() : 0;
+            BubbleGeometry.buildPath(mAnimatedPath, mAnimatedShape, mTempBounds, radii,
+                    state.mCaretShape, state.mCaretWidth, state.mCaretHeight,
+                    state.mAbsoluteCaretPosition, state.mCenterCaretOffset,
+                    state.mCenterCaretAbsOffset);
+            if (metrics) {
+                BubbleMetrics.recordPathBuild(System.nanoTime() - start);
+            }
+            mBubblePath = mAnimatedPath;
+            return;
+        }
+        mPathKey.set(width, height, radii, state.mCaretShape, state.mCaretWidth,
+                state.mCaretHeight, state.mAbsoluteCaretPosition, state.mCenterCaretOffset,
+                state.mCenterCaretAbsOffset);
+        mBubblePath = BubblePathCache.obtain(mPathKey);
+    }
+
+    /**
+     * Bubble shape ripple masks itself with
+     */
+    private final class RippleMask extends Drawable {
+
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        @Override
+        public void draw(@NonNull Canvas canvas) {
+            final Rect bounds = getBounds();
+            ensurePath();
+            final float inset = getPathInset();
+            final int saveCount = canvas.save();
+            canvas.translate(bounds.left + inset, bounds.top + inset);
+            canvas.drawPath(mBubblePath, mPaint);
+            canvas.restoreToCount(saveCount);
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+
+    static class BubbleState extends ConstantState {
+
+        float mCaretWidth, mCaretHeight;
+        CaretShape mCaretShape = CaretShape.TRIANGLE;
+        int mCaretPosition, mAbsoluteCaretPosition;
+        float mCornerRadius;
+        /**
+         * Relative radii in top start, top end, bottom end, bottom start order, {@code null} if
+         * all corners use {@link #mCornerRadius}
+         */
+        float[] mCornerRadii;
+        /**
+         * Radii resolved with layout direction, indexed by {@link BubbleGeometry#TOP_LEFT} etc.
+         */
+        final float[] mAbsoluteCornerRadii = new float[4];
+        float mCenterCaretOffset = 0.5f;
+        float mCenterCaretAbsOffset = Float.NaN;
+        ColorStateList mColor;
+        int mBorderWidth;
+        ColorStateList mBorderColor;
+        BubbleGradient mGradient;
+        ColorStateList mRippleColor;
+        boolean mOutlineEnabled;
+        boolean mClipOutline;
+        Bitmap mImage;
+        int mRenderMode = RENDER_MODE_PATH;
+        int mChangingConfigurations;
+
+        BubbleState() {
+        }
+
+        BubbleState(BubbleState orig) {
+            mCaretWidth = orig.mCaretWidth;
+            mCaretHeight = orig.mCaretHeight;
+            mCaretShape = orig.mCaretShape;
+            mCaretPosition = orig.mCaretPosition;
+            mAbsoluteCaretPosition = orig.mAbsoluteCaretPosition;
+            mCornerRadius = orig.mCornerRadius;
+            mCornerRadii = copyOrNull(orig.mCornerRadii);
+            System.arraycopy(orig.mAbsoluteCornerRadii, 0, mAbsoluteCornerRadii, 0, 4);
+            mCenterCaretOffset = orig.mCenterCaretOffset;
+            mCenterCaretAbsOffset = orig.mCenterCaretAbsOffset;
+            mColor = orig.mColor;
+            mBorderWidth = orig.mBorderWidth;
+            mBorderColor = orig.mBorderColor;
+            mGradient = orig.mGradient;
+            mRippleColor = orig.mRippleColor;
+            mOutlineEnabled = orig.mOutlineEnabled;
+            mClipOutline = orig.mClipOutline;
+            mImage = orig.mImage;
+            mRenderMode = orig.mRenderMode;
+            mChangingConfigurations = orig.mChangingConfigurations;
+        }
+
+        /**
+         * @return {@code true} if absolute radii changed
+         */
+        boolean resolveCornerRadii(int layoutDirection) {
+            final float[] abs = mAbsoluteCornerRadii;
+            final float tl = abs[TOP_LEFT], tr = abs[TOP_RIGHT], br = abs[BOTTOM_RIGHT], bl = abs[BOTTOM_LEFT];
+            final float[] radii = mCornerRadii;
+            if (radii == null) {
+                Arrays.fill(abs, mCornerRadius);
+            } else if (layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL) {
+                abs[TOP_LEFT] = radii[1];
+                abs[TOP_RIGHT] = radii[0];
+                abs[BOTTOM_RIGHT] = radii[3];
+                abs[BOTTOM_LEFT] = radii[2];
+            } else {
+                abs[TOP_LEFT] = radii[0];
+                abs[TOP_RIGHT] = radii[1];
+                abs[BOTTOM_RIGHT] = radii[2];
+                abs[BOTTOM_LEFT] = radii[3];
+            }
+            return tl != abs[TOP_LEFT] || tr != abs[TOP_RIGHT] || br != abs[BOTTOM_RIGHT]
+                    || bl != abs[BOTTOM_LEFT];
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable() {
+            return new BubbleDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return mChangingConfigurations;
+        }
+    }
+
+}
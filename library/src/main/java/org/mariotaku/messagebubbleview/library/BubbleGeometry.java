@@ -0,0 +1,274 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.mariotaku.messagebubbleview.geometry.BubbleShapes;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+
+import androidx.annotation.NonNull;
+
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM_LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.BOTTOM_RIGHT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP_LEFT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.TOP_RIGHT;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.getCaretCenter;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.getMaxRadius;
+import static org.mariotaku.messagebubbleview.geometry.BubbleShapes.isUniform;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.HORIZONTAL;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.LEFT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.TOP;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.VERTICAL;
+
+/**
+ * Android side of bubble shapes. Paths are computed by {@link BubbleShapes} and replayed with
+ * {@link PathAdapter}, rectangle splitting and outlines stay here.
+ */
+final class BubbleGeometry {
+
+    private static final int ARC_SEGMENTS = 4;
+    /**
+     * Outline points taken from bubble body, caret points come on top of these
+     */
+    static final int BODY_OUTLINE_POINTS = (ARC_SEGMENTS + 1) * 4 + 4;
+
+    private BubbleGeometry() {
+    }
+
+    /**
+     * @param buffer Scratch buffer shape is built in
+     * @see BubbleShapes#buildBubble(ShapeBuffer, float, float, float, float, float[], CaretShape, float, float, int, float, float)
+     */
+    static void buildPath(@NonNull Path path, @NonNull ShapeBuffer buffer, @NonNull Rect bounds,
+                          @NonNull float[] radii, @NonNull CaretShape caretShape,
+                          float caretWidth, float caretHeight, int absoluteCaretPosition,
+                          float caretOffset, float caretAbsOffset) {
+        BubbleShapes.buildBubble(buffer, bounds.left, bounds.top, bounds.right, bounds.bottom,
+                radii, caretShape, caretWidth, caretHeight, absoluteCaretPosition, caretOffset,
+                caretAbsOffset);
+        PathAdapter.replay(buffer, path);
+    }
+
+    /**
+     * Splits bubble into a round rect body, an optional square corner and a caret anchored at
+     * {@code caretAnchor}, all relative to origin.
+     *
+     * @return {@code false} if shape can't be drawn this way, caller should use full path. Body
+     * and caret are still computed if only corner radii are the problem.
+     */
+    static boolean decompose(@NonNull RectF body, @NonNull RectF corner, @NonNull float[] caretAnchor,
+                             int width, int height, @NonNull float[] radii, float caretWidth,
+                             float caretHeight, int absoluteCaretPosition, float caretOffset,
+                             float caretAbsOffset) {
+        if (caretWidth < 0 || caretHeight < 0) return false;
+        final float radius = getMaxRadius(radii);
+        final float tl = radii[TOP_LEFT], tr = radii[TOP_RIGHT];
+        final float br = radii[BOTTOM_RIGHT], bl = radii[BOTTOM_LEFT];
+        corner.setEmpty();
+        switch (absoluteCaretPosition) {
+            case TOP | LEFT: {
+                body.set(caretWidth, 0, width, height);
+                corner.set(caretWidth, 0, caretWidth + radius, radius);
+                caretAnchor[0] = 0;
+                caretAnchor[1] = 0;
+                break;
+            }
+            case TOP | RIGHT: {
+                body.set(0, 0, width - caretWidth, height);
+                corner.set(width - caretWidth - radius, 0, width - caretWidth, radius);
+                caretAnchor[0] = width;
+                caretAnchor[1] = 0;
+                break;
+            }
+            case BOTTOM | LEFT: {
+                body.set(caretWidth, 0, width, height);
+                corner.set(caretWidth, height - radius, caretWidth + radius, height);
+                caretAnchor[0] = 0;
+                caretAnchor[1] = height;
+                break;
+            }
+            case BOTTOM | RIGHT: {
+                body.set(0, 0, width - caretWidth, height);
+                corner.set(width - caretWidth - radius, height - radius, width - caretWidth, height);
+                caretAnchor[0] = width;
+                caretAnchor[1] = height;
+                break;
+            }
+            case BOTTOM | VERTICAL: {
+                body.set(0, 0, width, height - caretHeight);
+                caretAnchor[0] = getCaretCenter(bl, br, caretWidth, 0, width, caretOffset, caretAbsOffset);
+                caretAnchor[1] = height;
+                break;
+            }
+            case TOP | VERTICAL: {
+                body.set(0, caretHeight, width, height);
+                caretAnchor[0] = getCaretCenter(tl, tr, caretWidth, 0, width, caretOffset, caretAbsOffset);
+                caretAnchor[1] = 0;
+                break;
+            }
+            case LEFT | HORIZONTAL: {
+                body.set(caretHeight, 0, width, height);
+                caretAnchor[0] = 0;
+                caretAnchor[1] = getCaretCenter(tl, bl, caretWidth, 0, height, caretOffset, caretAbsOffset);
+                break;
+            }
+            case RIGHT | HORIZONTAL: {
+                body.set(0, 0, width - caretHeight, height);
+                caretAnchor[0] = width;
+                caretAnchor[1] = getCaretCenter(tr, br, caretWidth, 0, height, caretOffset, caretAbsOffset);
+                break;
+            }
+            case TOP | LEFT | VERTICAL: {
+                body.set(0, caretHeight, width, height);
+                corner.set(0, caretHeight, radius, caretHeight + radius);
+                caretAnchor[0] = 0;
+                caretAnchor[1] = 0;
+                break;
+            }
+            case TOP | RIGHT | VERTICAL: {
+                body.set(0, caretHeight, width, height);
+                corner.set(width - radius, caretHeight, width, caretHeight + radius);
+                caretAnchor[0] = width;
+                caretAnchor[1] = 0;
+                break;
+            }
+            default: {
+                body.set(0, 0, width, height);
+                break;
+            }
+        }
+        return isUniform(radii) && radius * 2 <= body.width() && radius * 2 <= body.height();
+    }
+
+    /**
+     * Builds caret alone, relative to its tip. Anchor computed by
+     * {@link #decompose(RectF, RectF, float[], int, int, float[], float, float, int, float, float)}
+     * is where the tip goes.
+     *
+     * @param buffer Scratch buffer shape is built in
+     * @return {@code false} if caret position has no caret
+     * @see BubbleShapes#buildCaret(ShapeBuffer, CaretShape, float, float, int)
+     */
+    static boolean buildCaretPath(@NonNull Path path, @NonNull ShapeBuffer buffer,
+                                  @NonNull CaretShape caretShape, float caretWidth,
+                                  float caretHeight, int absoluteCaretPosition) {
+        final boolean hasCaret = BubbleShapes.buildCaret(buffer, caretShape, caretWidth,
+                caretHeight, absoluteCaretPosition);
+        PathAdapter.replay(buffer, path);
+        return hasCaret;
+    }
+
+    /**
+     * Builds convex hull of bubble, offset by {@code left} and {@code top}. For centered carets
+     * hull only differs from bubble in the notch between caret and body, close enough for
+     * shadows. Corner carets would join their tip to far corner, don't use it for them.
+     *
+     * @param points Scratch array, at least twice as many elements as
+     *               {@link #BODY_OUTLINE_POINTS} plus {@link BubbleShapes#getCaretPointCount}
+     * @param hull   Scratch array, two elements more than {@code points}
+     */
+    static void buildOutlinePath(@NonNull Path path, @NonNull RectF body, @NonNull RectF corner,
+                                 @NonNull float[] anchor, @NonNull float[] points,
+                                 @NonNull float[] hull, int left, int top, int width, int height,
+                                 @NonNull float[] radii, @NonNull CaretShape caretShape,
+                                 float caretWidth, float caretHeight, int absoluteCaretPosition,
+                                 float caretOffset, float caretAbsOffset) {
+        if (caretWidth < 0) {
+            caretWidth = width;
+        }
+        if (caretHeight < 0) {
+            caretHeight = height;
+        }
+        decompose(body, corner, anchor, width, height, radii, caretWidth, caretHeight,
+                absoluteCaretPosition, caretOffset, caretAbsOffset);
+        final float maxRadius = Math.max(0, Math.min(body.width(), body.height()) / 2);
+        final float tl = Math.min(radii[TOP_LEFT], maxRadius);
+        final float tr = Math.min(radii[TOP_RIGHT], maxRadius);
+        final float br = Math.min(radii[BOTTOM_RIGHT], maxRadius);
+        final float bl = Math.min(radii[BOTTOM_LEFT], maxRadius);
+        int count = 0;
+        count += getArcPoints(points, count, body.right - br, body.bottom - br, br, 0);
+        count += getArcPoints(points, count, body.left + bl, body.bottom - bl, bl, 1);
+        count += getArcPoints(points, count, body.left + tl, body.top + tl, tl, 2);
+        count += getArcPoints(points, count, body.right - tr, body.top + tr, tr, 3);
+        if (!corner.isEmpty()) {
+            setPoint(points, count, corner.left, corner.top);
+            setPoint(points, count + 1, corner.right, corner.top);
+            setPoint(points, count + 2, corner.right, corner.bottom);
+            setPoint(points, count + 3, corner.left, corner.bottom);
+            count += 4;
+        }
+        count += BubbleShapes.getCaretPoints(points, count, caretShape, caretWidth, caretHeight,
+                absoluteCaretPosition, anchor[0], anchor[1]);
+        final int hullCount = convexHull(points, count, hull);
+        path.reset();
+        path.moveTo(left + hull[0], top + hull[1]);
+        for (int i = 1; i < hullCount; i++) {
+            path.lineTo(left + hull[i * 2], top + hull[i * 2 + 1]);
+        }
+        path.close();
+    }
+
+    private static void setPoint(float[] out, int index, float x, float y) {
+        out[index * 2] = x;
+        out[index * 2 + 1] = y;
+    }
+
+    /**
+     * Samples quarter circle {@code quadrant} (clockwise from bottom right, y axis down)
+     */
+    private static int getArcPoints(float[] out, int offset, float cx, float cy, float radius,
+                                    int quadrant) {
+        for (int i = 0; i <= ARC_SEGMENTS; i++) {
+            final double angle = Math.PI / 2 * (quadrant + (double) i / ARC_SEGMENTS);
+            out[(offset + i) * 2] = cx + (float) (Math.cos(angle) * radius);
+            out[(offset + i) * 2 + 1] = cy + (float) (Math.sin(angle) * radius);
+        }
+        return ARC_SEGMENTS + 1;
+    }
+
+    /**
+     * Andrew's monotone chain, sorts {@code points} in place
+     *
+     * @return Number of hull points written to {@code hull}
+     */
+    private static int convexHull(float[] points, int count, float[] hull) {
+        for (int i = 1; i < count; i++) {
+            final float x = points[i * 2], y = points[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && (points[j * 2] > x || (points[j * 2] == x && points[j * 2 + 1] > y))) {
+                points[(j + 1) * 2] = points[j * 2];
+                points[(j + 1) * 2 + 1] = points[j * 2 + 1];
+                j--;
+            }
+            points[(j + 1) * 2] = x;
+            points[(j + 1) * 2 + 1] = y;
+        }
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            while (k >= 2 && cross(hull, k, points[i * 2], points[i * 2 + 1]) <= 0) k--;
+            hull[k * 2] = points[i * 2];
+            hull[k * 2 + 1] = points[i * 2 + 1];
+            k++;
+        }
+        for (int i = count - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(hull, k, points[i * 2], points[i * 2 + 1]) <= 0) k--;
+            hull[k * 2] = points[i * 2];
+            hull[k * 2 + 1] = points[i * 2 + 1];
+            k++;
+        }
+        // Last point repeats first
+        return k - 1;
+    }
+
+    private static float cross(float[] hull, int k, float x, float y) {
+        final float ox = hull[(k - 2) * 2], oy = hull[(k - 2) * 2 + 1];
+        final float ax = hull[(k - 1) * 2], ay = hull[(k - 1) * 2 + 1];
+        return (ax - ox) * (y - oy) - (ay - oy) * (x - ox);
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Shader;
+
+import java.util.Arrays;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Immutable vertical gradient spanning whole window, so bubble color follows its position on
+ * screen. Bubble views keep their gradient in place from their pre-draw pass, scrolling only
+ * moves shader matrix.
+ */
+public final class BubbleGradient {
+
+    @NonNull
+    private final int[] mColors;
+    @Nullable
+    private final float[] mPositions;
+    private final boolean mOpaque;
+
+    public BubbleGradient(@ColorInt int topColor, @ColorInt int bottomColor) {
+        this(new int[]{topColor, bottomColor}, null);
+    }
+
+    /**
+     * @param colors    Colors from top to bottom of window, at least two
+     * @param positions Relative positions of colors, or {@code null} to space them evenly
+     */
+    public BubbleGradient(@NonNull int[] colors, @Nullable float[] positions) {
+        if (colors.length < 2) throw new IllegalArgumentException("Needs at least 2 colors");
+        if (positions != null && positions.length != colors.length) {
+            throw new IllegalArgumentException("Color and position counts differ");
+        }
+        mColors = colors.clone();
+        mPositions = positions != null ? positions.clone() : null;
+        boolean opaque = true;
+        for (int color : colors) {
+            opaque &= Color.alpha(color) == 255;
+        }
+        mOpaque = opaque;
+    }
+
+    @NonNull
+    public int[] getColors() {
+        return mColors.clone();
+    }
+
+    @Nullable
+    public float[] getPositions() {
+        return mPositions != null ? mPositions.clone() : null;
+    }
+
+    boolean isOpaque() {
+        return mOpaque;
+    }
+
+    /**
+     * @return Gradient from {@code y = 0} to {@code y = 1}, scaled to window by its local matrix
+     */
+    @NonNull
+    Shader createShader() {
+        return new LinearGradient(0, 0, 0, 1, mColors, mPositions, Shader.TileMode.CLAMP);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final BubbleGradient that = (BubbleGradient) o;
+        return Arrays.equals(mColors, that.mColors) && Arrays.equals(mPositions, that.mPositions);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(mColors);
+        result = 31 * result + Arrays.hashCode(mPositions);
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Paints bubbles behind plain item views of a {@link RecyclerView}, so rows don't need a
+ * {@link MessageBubbleView} wrapper. Items are offset by caret padding of their style, and all
+ * bubbles are drawn in one pass sharing one {@link BubbleDrawable}, consecutive items with same
+ * style instance resolve it once.
+ * <p>
+ * Needs {@code androidx.recyclerview}, which this library doesn't depend on by itself.
+ */
+public class BubbleItemDecoration extends RecyclerView.ItemDecoration {
+
+    private final BubbleRenderer mRenderer = new BubbleRenderer();
+    private final Rect mPadding = new Rect();
+    @NonNull
+    private final StyleCallback mCallback;
+
+    // Styles children were drawn with last frame, removed items animating out have no position
+    // to look theirs up with
+    private View[] mDrawnChildren = new View[0];
+    private BubbleStyle[] mDrawnStyles = new BubbleStyle[0];
+    private int mDrawnCount;
+    private View[] mNextChildren = new View[0];
+    private BubbleStyle[] mNextStyles = new BubbleStyle[0];
+
+    public BubbleItemDecoration(@NonNull StyleCallback callback) {
+        mCallback = callback;
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mRenderer.setRenderMode(mode);
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mRenderer.getRenderMode();
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view,
+                               @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        final BubbleStyle style = getStyle(parent, view);
+        if (style == null) {
+            outRect.set(0, 0, 0, 0);
+            return;
+        }
+        mRenderer.setLayoutDirection(ViewCompat.getLayoutDirection(parent));
+        mRenderer.getPadding(style, outRect);
+    }
+
+    @Override
+    public void onDraw(@NonNull Canvas canvas, @NonNull RecyclerView parent,
+                       @NonNull RecyclerView.State state) {
+        mRenderer.setLayoutDirection(ViewCompat.getLayoutDirection(parent));
+        final int count = parent.getChildCount();
+        if (mNextChildren.length < count) {
+            mNextChildren = new View[count];
+            mNextStyles = new BubbleStyle[count];
+        }
+        for (int i = 0; i < count; i++) {
+            final View child = parent.getChildAt(i);
+            final BubbleStyle style = getStyle(parent, child);
+            mNextChildren[i] = child;
+            mNextStyles[i] = style;
+            if (style == null) continue;
+            // Follow item animations
+            final int alpha = Math.round(child.getAlpha() * 255);
+            if (alpha == 0) continue;
+            mRenderer.getPadding(style, mPadding);
+            final int dx = Math.round(child.getTranslationX());
+            final int dy = Math.round(child.getTranslationY());
+            mRenderer.setAlpha(alpha);
+            mRenderer.setState(child.getDrawableState());
+            mRenderer.draw(canvas, style, child.getLeft() - mPadding.left + dx,
+                    child.getTop() - mPadding.top + dy, child.getRight() + mPadding.right + dx,
+                    child.getBottom() + mPadding.bottom + dy);
+        }
+        swapDrawnStyles(count);
+    }
+
+    @Nullable
+    private BubbleStyle getStyle(RecyclerView parent, View child) {
+        final int position = parent.getChildAdapterPosition(child);
+        if (position != RecyclerView.NO_POSITION) return mCallback.getBubbleStyle(position);
+        for (int i = 0; i < mDrawnCount; i++) {
+            if (mDrawnChildren[i] == child) return mDrawnStyles[i];
+        }
+        return null;
+    }
+
+    private void swapDrawnStyles(int count) {
+        final View[] children = mDrawnChildren;
+        final BubbleStyle[] styles = mDrawnStyles;
+        // Don't keep detached views alive
+        Arrays.fill(children, null);
+        Arrays.fill(styles, null);
+        mDrawnChildren = mNextChildren;
+        mDrawnStyles = mNextStyles;
+        mDrawnCount = count;
+        mNextChildren = children;
+        mNextStyles = styles;
+    }
+
+    /**
+     * Supplies bubble style of each item, return same instance for items sharing a style
+     */
+    public interface StyleCallback {
+
+        /**
+         * @return Style of bubble behind item at adapter {@code position}, or {@code null} to
+         * draw no bubble
+         */
+        @Nullable
+        BubbleStyle getBubbleStyle(int position);
+    }
+}
@@ -0,0 +1,168 @@
+package org.mariotaku.messagebubbleview.library;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Process wide bubble rendering counters, for exporting to app telemetry. Disabled by default,
+ * a disabled recorder costs one static field read per event.
+ * <p>
+ * Counters only grow until {@link #reset()}, so sample them e.g. once per frame and report the
+ * difference to correlate with jank.
+ */
+public final class BubbleMetrics {
+
+    /**
+     * Read by call sites before recording anything, not volatile so checking it stays a plain
+     * field read. Other threads see a change eventually.
+     */
+    static boolean sEnabled;
+
+    private static Listener sListener;
+    private static long sPathBuildCount, sPathBuildNanos, sPathCacheHitCount;
+    private static long sDrawCount, sStateInvalidationCount, sRelayoutCount;
+
+    private BubbleMetrics() {
+    }
+
+    public static synchronized void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static synchronized boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @param listener Notified of each event while enabled, on thread the event happened on
+     */
+    public static synchronized void setListener(@Nullable Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @return Number of bubble paths built, animated geometry included
+     */
+    public static synchronized long getPathBuildCount() {
+        return sPathBuildCount;
+    }
+
+    /**
+     * @return Total time spent building paths counted by {@link #getPathBuildCount()}
+     */
+    public static synchronized long getPathBuildNanos() {
+        return sPathBuildNanos;
+    }
+
+    /**
+     * @return Number of path rebuilds served by {@link BubblePathCache}
+     */
+    public static synchronized long getPathCacheHitCount() {
+        return sPathCacheHitCount;
+    }
+
+    public static synchronized long getDrawCount() {
+        return sDrawCount;
+    }
+
+    /**
+     * @return Number of drawable state changes that changed bubble color and invalidated it
+     */
+    public static synchronized long getStateInvalidationCount() {
+        return sStateInvalidationCount;
+    }
+
+    /**
+     * @return Number of times a bubble view re-attached its background to pick up new padding,
+     * each one requests layout
+     */
+    public static synchronized long getRelayoutCount() {
+        return sRelayoutCount;
+    }
+
+    public static synchronized void reset() {
+        sPathBuildCount = 0;
+        sPathBuildNanos = 0;
+        sPathCacheHitCount = 0;
+        sDrawCount = 0;
+        sStateInvalidationCount = 0;
+        sRelayoutCount = 0;
+    }
+
+    static void recordPathBuild(long nanos) {
+        final Listener listener;
+        synchronized (BubbleMetrics.class) {
+            sPathBuildCount++;
+            sPathBuildNanos += nanos;
+            listener = sListener;
+        }
+        if (listener != null) {
+            listener.onPathBuilt(nanos);
+        }
+    }
+
+    static void recordPathCacheHit() {
+        final Listener listener;
+        synchronized (BubbleMetrics.class) {
+            sPathCacheHitCount++;
+            listener = sListener;
+        }
+        if (listener != null) {
+            listener.onPathCacheHit();
+        }
+    }
+
+    static void recordDraw() {
+        final Listener listener;
+        synchronized (BubbleMetrics.class) {
+            sDrawCount++;
+            listener = sListener;
+        }
+        if (listener != null) {
+            listener.onDraw();
+        }
+    }
+
+    static void recordStateInvalidation() {
+        final Listener listener;
+        synchronized (BubbleMetrics.class) {
+            sStateInvalidationCount++;
+            listener = sListener;
+        }
+        if (listener != null) {
+            listener.onStateInvalidation();
+        }
+    }
+
+    static void recordRelayout() {
+        final Listener listener;
+        synchronized (BubbleMetrics.class) {
+            sRelayoutCount++;
+            listener = sListener;
+        }
+        if (listener != null) {
+            listener.onRelayout();
+        }
+    }
+
+    /**
+     * Receives individual events, override the ones of interest. Called on hot paths, so
+     * implementations must be cheap.
+     */
+    public static abstract class Listener {
+
+        public void onPathBuilt(long nanos) {
+        }
+
+        public void onPathCacheHit() {
+        }
+
+        public void onDraw() {
+        }
+
+        public void onStateInvalidation() {
+        }
+
+        public void onRelayout() {
+        }
+    }
+}
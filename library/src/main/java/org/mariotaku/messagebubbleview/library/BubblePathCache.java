@@ -0,0 +1,196 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Process wide LRU cache of bubble paths. Bubbles with identical size and shape, corner radii
+ * included, share one immutable {@link Path}, built with its top-left corner at origin.
+ */
+public final class BubblePathCache {
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private static final LinkedHashMap<Key, Path> sPaths = new LinkedHashMap<>(16, 0.75f, true);
+    private static final ShapeBuffer sShapeBuffer = new ShapeBuffer();
+    private static int sMaxSize = DEFAULT_MAX_SIZE;
+    private static int sHitCount, sMissCount;
+
+    private BubblePathCache() {
+    }
+
+    /**
+     * @param maxSize Max number of cached paths, {@code 0} disables caching
+     */
+    public static synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize < 0");
+        sMaxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public static synchronized int getMaxSize() {
+        return sMaxSize;
+    }
+
+    public static synchronized int size() {
+        return sPaths.size();
+    }
+
+    public static synchronized int getHitCount() {
+        return sHitCount;
+    }
+
+    public static synchronized int getMissCount() {
+        return sMissCount;
+    }
+
+    public static synchronized void clear() {
+        sPaths.clear();
+    }
+
+    public static synchronized void resetStats() {
+        sHitCount = 0;
+        sMissCount = 0;
+    }
+
+    /**
+     * Returned path is shared and must not be modified
+     */
+    @NonNull
+    static synchronized Path obtain(@NonNull Key key) {
+        Path path = sPaths.get(key);
+        if (path != null) {
+            sHitCount++;
+            if (BubbleMetrics.sEnabled) {
+                BubbleMetrics.recordPathCacheHit();
+            }
+            return path;
+        }
+        sMissCount++;
+        final boolean metrics = BubbleMetrics.sEnabled;
+        final long start = metrics ? System.nanoTime() : 0;
+        path = key.buildPath(sShapeBuffer);
+        if (metrics) {
+            BubbleMetrics.recordPathBuild(System.nanoTime() - start);
+        }
+        if (sMaxSize > 0) {
+            sPaths.put(key.copy(), path);
+            trimToSize(sMaxSize);
+        }
+        return path;
+    }
+
+    private static void trimToSize(int maxSize) {
+        final Iterator<Key> iterator = sPaths.keySet().iterator();
+        int size = sPaths.size();
+        while (size > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            size--;
+        }
+    }
+
+    /**
+     * Mutable lookup key, drawables keep one instance and update it in place so a cache hit
+     * allocates nothing
+     */
+    static final class Key {
+
+        private static final float[] NO_RADII = new float[4];
+
+        boolean caretOnly;
+        int width, height;
+        final float[] radii = new float[4];
+        CaretShape caretShape = CaretShape.TRIANGLE;
+        float caretWidth, caretHeight;
+        int absoluteCaretPosition;
+        float caretOffset, caretAbsOffset;
+
+        void set(int width, int height, @NonNull float[] radii, @NonNull CaretShape caretShape,
+                 float caretWidth, float caretHeight, int absoluteCaretPosition,
+                 float caretOffset, float caretAbsOffset) {
+            this.caretOnly = false;
+            this.width = width;
+            this.height = height;
+            System.arraycopy(radii, 0, this.radii, 0, 4);
+            this.caretShape = caretShape;
+            this.caretWidth = caretWidth;
+            this.caretHeight = caretHeight;
+            this.absoluteCaretPosition = absoluteCaretPosition;
+            this.caretOffset = caretOffset;
+            this.caretAbsOffset = caretAbsOffset;
+        }
+
+        /**
+         * Key for caret piece alone, see
+         * {@link BubbleGeometry#buildCaretPath(Path, ShapeBuffer, CaretShape, float, float, int)}
+         */
+        void setCaret(@NonNull CaretShape caretShape, float caretWidth, float caretHeight,
+                      int absoluteCaretPosition) {
+            set(0, 0, NO_RADII, caretShape, caretWidth, caretHeight, absoluteCaretPosition, 0, 0);
+            this.caretOnly = true;
+        }
+
+        Key copy() {
+            final Key key = new Key();
+            key.set(width, height, radii, caretShape, caretWidth, caretHeight,
+                    absoluteCaretPosition, caretOffset, caretAbsOffset);
+            key.caretOnly = caretOnly;
+            return key;
+        }
+
+        Path buildPath(@NonNull ShapeBuffer buffer) {
+            final Path path = new Path();
+            if (caretOnly) {
+                BubbleGeometry.buildCaretPath(path, buffer, caretShape, caretWidth, caretHeight,
+                        absoluteCaretPosition);
+            } else {
+                BubbleGeometry.buildPath(path, buffer, new Rect(0, 0, width, height), radii,
+                        caretShape, caretWidth, caretHeight, absoluteCaretPosition, caretOffset,
+                        caretAbsOffset);
+            }
+            return path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return caretOnly == key.caretOnly
+                    && width == key.width
+                    && height == key.height
+                    && absoluteCaretPosition == key.absoluteCaretPosition
+                    && Arrays.equals(key.radii, radii)
+                    && caretShape.equals(key.caretShape)
+                    && Float.compare(key.caretWidth, caretWidth) == 0
+                    && Float.compare(key.caretHeight, caretHeight) == 0
+                    && Float.compare(key.caretOffset, caretOffset) == 0
+                    && Float.compare(key.caretAbsOffset, caretAbsOffset) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = caretOnly ? 1 : 0;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + Arrays.hashCode(radii);
+            result = 31 * result + caretShape.hashCode();
+            result = 31 * result + Float.floatToIntBits(caretWidth);
+            result = 31 * result + Float.floatToIntBits(caretHeight);
+            result = 31 * result + absoluteCaretPosition;
+            result = 31 * result + Float.floatToIntBits(caretOffset);
+            result = 31 * result + Float.floatToIntBits(caretAbsOffset);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.FloatProperty;
+import android.util.IntProperty;
+import android.util.Property;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Animatable {@link BubbleDrawable} properties. On API 24+ these are {@link FloatProperty} and
+ * {@link IntProperty}, so animators set values without boxing.
+ */
+final class BubbleProperties {
+
+    static final int CENTER_CARET_OFFSET = 0;
+    static final int CENTER_CARET_ABS_OFFSET = 1;
+    static final int CORNER_RADIUS = 2;
+
+    private BubbleProperties() {
+    }
+
+    @NonNull
+    static Property<BubbleDrawable, Float> createFloat(@NonNull String name, int property) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return new UnboxedFloatProperty(name, property);
+        }
+        return new BoxedFloatProperty(name, property);
+    }
+
+    @NonNull
+    static Property<BubbleDrawable, Integer> createColor(@NonNull String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return new UnboxedColorProperty(name);
+        }
+        return new BoxedColorProperty(name);
+    }
+
+    static float getFloat(BubbleDrawable drawable, int property) {
+        switch (property) {
+            case CENTER_CARET_OFFSET:
+                return drawable.getCenterCaretOffset();
+            case CENTER_CARET_ABS_OFFSET:
+                return drawable.getCenterCaretAbsOffset();
+            case CORNER_RADIUS:
+                return drawable.getCornerRadius();
+        }
+        throw new IllegalArgumentException("Unknown property " + property);
+    }
+
+    static void setFloat(BubbleDrawable drawable, int property, float value) {
+        switch (property) {
+            case CENTER_CARET_OFFSET:
+                drawable.setCenterCaretOffset(value, true);
+                return;
+            case CENTER_CARET_ABS_OFFSET:
+                drawable.setCenterCaretAbsOffset(value, true);
+                return;
+            case CORNER_RADIUS:
+                drawable.setCornerRadius(value, true);
+                return;
+        }
+        throw new IllegalArgumentException("Unknown property " + property);
+    }
+
+    private static class BoxedFloatProperty extends Property<BubbleDrawable, Float> {
+
+        private final int mProperty;
+
+        BoxedFloatProperty(String name, int property) {
+            super(Float.class, name);
+            mProperty = property;
+        }
+
+        @Override
+        public Float get(BubbleDrawable object) {
+            return getFloat(object, mProperty);
+        }
+
+        @Override
+        public void set(BubbleDrawable object, Float value) {
+            setFloat(object, mProperty, value);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static class UnboxedFloatProperty extends FloatProperty<BubbleDrawable> {
+
+        private final int mProperty;
+
+        UnboxedFloatProperty(String name, int property) {
+            super(name);
+            mProperty = property;
+        }
+
+        @Override
+        public Float get(BubbleDrawable object) {
+            return getFloat(object, mProperty);
+        }
+
+        @Override
+        public void setValue(BubbleDrawable object, float value) {
+            setFloat(object, mProperty, value);
+        }
+    }
+
+    private static class BoxedColorProperty extends Property<BubbleDrawable, Integer> {
+
+        BoxedColorProperty(String name) {
+            super(Integer.class, name);
+        }
+
+        @Override
+        public Integer get(BubbleDrawable object) {
+            return object.getAnimatedColor();
+        }
+
+        @Override
+        public void set(BubbleDrawable object, Integer value) {
+            object.setAnimatedColor(value);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static class UnboxedColorProperty extends IntProperty<BubbleDrawable> {
+
+        UnboxedColorProperty(String name) {
+            super(name);
+        }
+
+        @Override
+        public Integer get(BubbleDrawable object) {
+            return object.getAnimatedColor();
+        }
+
+        @Override
+        public void setValue(BubbleDrawable object, int value) {
+            object.setAnimatedColor(value);
+        }
+    }
+}
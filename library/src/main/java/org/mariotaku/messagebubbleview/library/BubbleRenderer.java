@@ -0,0 +1,198 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+
+/**
+ * Draws bubbles without a view, e.g. into images for share sheets, notification icons or
+ * conversation thumbnails. Uses same geometry and caches as {@link BubbleDrawable}, so it can
+ * run on any thread, but a renderer instance itself must only be used by one thread at a time.
+ */
+public final class BubbleRenderer {
+
+    private final BubbleDrawable mDrawable = new BubbleDrawable();
+    private final Rect mPadding = new Rect();
+    private final Rect mBounds = new Rect();
+    private BubbleStyle mStyle;
+    private int mLayoutDirection = ViewCompat.LAYOUT_DIRECTION_LTR;
+
+    public BubbleRenderer() {
+        // Only a static pressed overlay, ripple would animate across every bubble drawn
+        mDrawable.setRippleEnabled(false);
+    }
+
+    /**
+     * Sets direction start and end of bubble styles resolve with, LTR by default
+     */
+    public void setLayoutDirection(int layoutDirection) {
+        if (mLayoutDirection == layoutDirection) return;
+        mLayoutDirection = layoutDirection;
+        mStyle = null;
+    }
+
+    public int getLayoutDirection() {
+        return mLayoutDirection;
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mDrawable.setRenderMode(mode);
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mDrawable.getRenderMode();
+    }
+
+    /**
+     * Sets drawable state used to pick color of stateful bubble colors, and to show ripple
+     * color as a static overlay while pressed
+     */
+    public void setState(@NonNull int[] state) {
+        mDrawable.setState(state);
+    }
+
+    /**
+     * Sets opacity bubbles are drawn with, from {@code 0} to {@code 255}
+     */
+    public void setAlpha(int alpha) {
+        mDrawable.setAlpha(alpha);
+    }
+
+    public int getAlpha() {
+        return mDrawable.getAlpha();
+    }
+
+    /**
+     * Gets space {@code style} reserves around content for its caret
+     */
+    public void getPadding(@NonNull BubbleStyle style, @NonNull Rect padding) {
+        applyStyle(style);
+        mDrawable.getPadding(padding);
+    }
+
+    /**
+     * Draws bubble filling given bounds
+     */
+    public void draw(@NonNull Canvas canvas, @NonNull BubbleStyle style, int left, int top,
+                     int right, int bottom) {
+        applyStyle(style);
+        mDrawable.setBounds(left, top, right, bottom);
+        mDrawable.draw(canvas);
+    }
+
+    /**
+     * Draws bubble wrapping content of given size, with bubble's top left corner at
+     * {@code left, top}
+     *
+     * @param contentBounds Receives bounds content should be drawn in, may be {@code null}
+     */
+    public void drawAroundContent(@NonNull Canvas canvas, @NonNull BubbleStyle style, int left,
+                                  int top, int contentWidth, int contentHeight,
+                                  @Nullable Rect contentBounds) {
+        getBubbleBounds(style, left, top, contentWidth, contentHeight, mBounds);
+        draw(canvas, style, mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+        if (contentBounds != null) {
+            contentBounds.set(left + mPadding.left, top + mPadding.top,
+                    left + mPadding.left + contentWidth, top + mPadding.top + contentHeight);
+        }
+    }
+
+    /**
+     * Renders bubble wrapping content of given size into a bitmap from {@link BubbleBitmapPool},
+     * hand it back with {@link BubbleBitmapPool#release(Bitmap)} when done
+     */
+    @NonNull
+    public Bitmap render(@NonNull BubbleStyle style, int contentWidth, int contentHeight) {
+        getBubbleBounds(style, 0, 0, contentWidth, contentHeight, mBounds);
+        final Bitmap bitmap = BubbleBitmapPool.obtain(mBounds.width(), mBounds.height());
+        draw(new Canvas(bitmap), style, 0, 0, mBounds.right, mBounds.bottom);
+        return bitmap;
+    }
+
+    /**
+     * Renders all bubbles of {@code batch} into one bitmap from {@link BubbleBitmapPool}, sized
+     * to fit all of them. Consecutive bubbles of same style only resolve it once.
+     */
+    @NonNull
+    public Bitmap render(@NonNull Batch batch) {
+        final int count = batch.size();
+        if (count == 0) throw new IllegalArgumentException("Empty batch");
+        final int[] bounds = batch.mBounds;
+        int width = 0, height = 0;
+        for (int i = 0; i < count; i++) {
+            getBubbleBounds(batch.mStyles.get(i), bounds[i * 4], bounds[i * 4 + 1],
+                    bounds[i * 4 + 2], bounds[i * 4 + 3], mBounds);
+            width = Math.max(width, mBounds.right);
+            height = Math.max(height, mBounds.bottom);
+        }
+        final Bitmap bitmap = BubbleBitmapPool.obtain(width, height);
+        draw(new Canvas(bitmap), batch);
+        return bitmap;
+    }
+
+    /**
+     * Draws all bubbles of {@code batch}, in order they were added
+     */
+    public void draw(@NonNull Canvas canvas, @NonNull Batch batch) {
+        final int[] bounds = batch.mBounds;
+        for (int i = 0, j = batch.size(); i < j; i++) {
+            drawAroundContent(canvas, batch.mStyles.get(i), bounds[i * 4], bounds[i * 4 + 1],
+                    bounds[i * 4 + 2], bounds[i * 4 + 3], null);
+        }
+    }
+
+    private void getBubbleBounds(BubbleStyle style, int left, int top, int contentWidth,
+                                 int contentHeight, Rect out) {
+        getPadding(style, mPadding);
+        out.set(left, top, left + mPadding.left + contentWidth + mPadding.right,
+                top + mPadding.top + contentHeight + mPadding.bottom);
+    }
+
+    private void applyStyle(BubbleStyle style) {
+        if (style == mStyle) return;
+        mDrawable.setStyle(style, mLayoutDirection);
+        mStyle = style;
+    }
+
+    /**
+     * Bubbles to render together, each given by style, position of its top left corner and
+     * content size. Can be cleared and reused.
+     */
+    public static final class Batch {
+
+        private final ArrayList<BubbleStyle> mStyles = new ArrayList<>();
+        private int[] mBounds = new int[16 * 4];
+
+        @NonNull
+        public Batch add(@NonNull BubbleStyle style, int left, int top, int contentWidth,
+                         int contentHeight) {
+            final int index = mStyles.size() * 4;
+            if (index + 4 > mBounds.length) {
+                final int[] bounds = new int[mBounds.length * 2];
+                System.arraycopy(mBounds, 0, bounds, 0, index);
+                mBounds = bounds;
+            }
+            mBounds[index] = left;
+            mBounds[index + 1] = top;
+            mBounds[index + 2] = contentWidth;
+            mBounds[index + 3] = contentHeight;
+            mStyles.add(style);
+            return this;
+        }
+
+        public int size() {
+            return mStyles.size();
+        }
+
+        public void clear() {
+            mStyles.clear();
+        }
+    }
+}
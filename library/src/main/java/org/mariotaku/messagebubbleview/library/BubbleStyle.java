@@ -0,0 +1,325 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.util.DisplayMetrics;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+
+import java.util.Arrays;
+
+import androidx.annotation.Dimension;
+import androidx.annotation.FloatRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.Px;
+
+/**
+ * Immutable set of bubble properties, applied to {@link MessageBubbleView} in one pass
+ * with {@link MessageBubbleView#applyStyle(BubbleStyle)}
+ */
+public final class BubbleStyle {
+
+    @MessageBubbleView.CaretPosition
+    private final int mCaretPosition;
+    private final int mCaretWidth, mCaretHeight;
+    @NonNull
+    private final CaretShape mCaretShape;
+    private final float mCornerRadius;
+    @Nullable
+    private final float[] mCornerRadii;
+    private final float mCenterCaretOffset;
+    private final float mCenterCaretAbsOffset;
+    @Nullable
+    private final ColorStateList mBubbleColor;
+    private final int mBorderWidth;
+    @Nullable
+    private final ColorStateList mBorderColor;
+    @Nullable
+    private final BubbleGradient mGradient;
+    @Nullable
+    private final ColorStateList mRippleColor;
+    private final float mWrapContentMaxWidthPercent;
+
+    BubbleStyle(Builder builder) {
+        mCaretPosition = builder.mCaretPosition;
+        mCaretWidth = builder.mCaretWidth;
+        mCaretHeight = builder.mCaretHeight;
+        mCaretShape = builder.mCaretShape;
+        mCornerRadius = builder.mCornerRadius;
+        mCornerRadii = builder.mCornerRadii != null ? builder.mCornerRadii.clone() : null;
+        mCenterCaretOffset = builder.mCenterCaretOffset;
+        mCenterCaretAbsOffset = builder.mCenterCaretAbsOffset;
+        mBubbleColor = builder.mBubbleColor;
+        mBorderWidth = builder.mBorderWidth;
+        mBorderColor = builder.mBorderColor;
+        mGradient = builder.mGradient;
+        mRippleColor = builder.mRippleColor;
+        mWrapContentMaxWidthPercent = builder.mWrapContentMaxWidthPercent;
+    }
+
+    @MessageBubbleView.CaretPosition
+    public int getCaretPosition() {
+        return mCaretPosition;
+    }
+
+    @Px
+    public int getCaretWidth() {
+        return mCaretWidth;
+    }
+
+    @Px
+    public int getCaretHeight() {
+        return mCaretHeight;
+    }
+
+    @NonNull
+    public CaretShape getCaretShape() {
+        return mCaretShape;
+    }
+
+    @Dimension
+    public float getCornerRadius() {
+        return mCornerRadius;
+    }
+
+    /**
+     * @return Copy of per corner radii in top start, top end, bottom end, bottom start order, or
+     * {@code null} if all corners use {@link #getCornerRadius()}
+     */
+    @Nullable
+    public float[] getCornerRadii() {
+        return mCornerRadii != null ? mCornerRadii.clone() : null;
+    }
+
+    /**
+     * Same as {@link #getCornerRadii()} without copying, must not be modified
+     */
+    @Nullable
+    float[] peekCornerRadii() {
+        return mCornerRadii;
+    }
+
+    public float getCenterCaretOffset() {
+        return mCenterCaretOffset;
+    }
+
+    public float getCenterCaretAbsOffset() {
+        return mCenterCaretAbsOffset;
+    }
+
+    @Nullable
+    public ColorStateList getBubbleColor() {
+        return mBubbleColor;
+    }
+
+    @Px
+    public int getBorderWidth() {
+        return mBorderWidth;
+    }
+
+    @Nullable
+    public ColorStateList getBorderColor() {
+        return mBorderColor;
+    }
+
+    @Nullable
+    public BubbleGradient getGradient() {
+        return mGradient;
+    }
+
+    @Nullable
+    public ColorStateList getRippleColor() {
+        return mRippleColor;
+    }
+
+    public float getWrapContentMaxWidthPercent() {
+        return mWrapContentMaxWidthPercent;
+    }
+
+    @NonNull
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final BubbleStyle that = (BubbleStyle) o;
+        return mCaretPosition == that.mCaretPosition
+                && mCaretWidth == that.mCaretWidth
+                && mCaretHeight == that.mCaretHeight
+                && mCaretShape.equals(that.mCaretShape)
+                && Float.compare(that.mCornerRadius, mCornerRadius) == 0
+                && Arrays.equals(mCornerRadii, that.mCornerRadii)
+                && Float.compare(that.mCenterCaretOffset, mCenterCaretOffset) == 0
+                && Float.compare(that.mCenterCaretAbsOffset, mCenterCaretAbsOffset) == 0
+                && Float.compare(that.mWrapContentMaxWidthPercent, mWrapContentMaxWidthPercent) == 0
+                && (mBubbleColor != null ? mBubbleColor.equals(that.mBubbleColor) : that.mBubbleColor == null)
+                && mBorderWidth == that.mBorderWidth
+                && (mBorderColor != null ? mBorderColor.equals(that.mBorderColor) : that.mBorderColor == null)
+                && (mGradient != null ? mGradient.equals(that.mGradient) : that.mGradient == null)
+                && (mRippleColor != null ? mRippleColor.equals(that.mRippleColor) : that.mRippleColor == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mCaretPosition;
+        result = 31 * result + mCaretWidth;
+        result = 31 * result + mCaretHeight;
+        result = 31 * result + mCaretShape.hashCode();
+        result = 31 * result + Float.floatToIntBits(mCornerRadius);
+        result = 31 * result + Arrays.hashCode(mCornerRadii);
+        result = 31 * result + Float.floatToIntBits(mCenterCaretOffset);
+        result = 31 * result + Float.floatToIntBits(mCenterCaretAbsOffset);
+        result = 31 * result + (mBubbleColor != null ? mBubbleColor.hashCode() : 0);
+        result = 31 * result + Float.floatToIntBits(mWrapContentMaxWidthPercent);
+        result = 31 * result + mBorderWidth;
+        result = 31 * result + (mBorderColor != null ? mBorderColor.hashCode() : 0);
+        result = 31 * result + (mGradient != null ? mGradient.hashCode() : 0);
+        result = 31 * result + (mRippleColor != null ? mRippleColor.hashCode() : 0);
+        return result;
+    }
+
+    public static final class Builder {
+
+        private int mCaretPosition = MessageBubbleView.NONE;
+        private int mCaretWidth, mCaretHeight;
+        private CaretShape mCaretShape = CaretShape.TRIANGLE;
+        private float mCornerRadius;
+        private float[] mCornerRadii;
+        private float mCenterCaretOffset = 0.5f;
+        private float mCenterCaretAbsOffset = Float.NaN;
+        private ColorStateList mBubbleColor;
+        private int mBorderWidth;
+        private ColorStateList mBorderColor;
+        private BubbleGradient mGradient;
+        private ColorStateList mRippleColor;
+        private float mWrapContentMaxWidthPercent;
+
+        /**
+         * Creates builder with same defaults as an empty {@link MessageBubbleView}
+         */
+        public Builder(@NonNull Context context) {
+            final DisplayMetrics dm = context.getResources().getDisplayMetrics();
+            final float w = dm.density * 12;
+            final float h = w * 0.75f;
+            mCaretWidth = Math.round(w);
+            mCaretHeight = Math.round(h);
+        }
+
+        public Builder(@NonNull BubbleStyle style) {
+            mCaretPosition = style.mCaretPosition;
+            mCaretWidth = style.mCaretWidth;
+            mCaretHeight = style.mCaretHeight;
+            mCaretShape = style.mCaretShape;
+            mCornerRadius = style.mCornerRadius;
+            mCornerRadii = style.mCornerRadii;
+            mCenterCaretOffset = style.mCenterCaretOffset;
+            mCenterCaretAbsOffset = style.mCenterCaretAbsOffset;
+            mBubbleColor = style.mBubbleColor;
+            mBorderWidth = style.mBorderWidth;
+            mBorderColor = style.mBorderColor;
+            mGradient = style.mGradient;
+            mRippleColor = style.mRippleColor;
+            mWrapContentMaxWidthPercent = style.mWrapContentMaxWidthPercent;
+        }
+
+        @NonNull
+        public Builder setCaretPosition(@MessageBubbleView.CaretPosition int position) {
+            mCaretPosition = position;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCaretSize(@Px int width, @Px int height) {
+            mCaretWidth = width;
+            mCaretHeight = height;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCaretShape(@NonNull CaretShape shape) {
+            mCaretShape = shape;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCornerRadius(@Dimension float radius) {
+            mCornerRadius = radius;
+            mCornerRadii = null;
+            return this;
+        }
+
+        /**
+         * Sets radius of each corner, e.g. to join grouped messages of same sender. Start and
+         * end are resolved with layout direction.
+         */
+        @NonNull
+        public Builder setCornerRadii(@Dimension float topStart, @Dimension float topEnd,
+                                      @Dimension float bottomEnd, @Dimension float bottomStart) {
+            mCornerRadii = new float[]{topStart, topEnd, bottomEnd, bottomStart};
+            return this;
+        }
+
+        @NonNull
+        public Builder setCenterCaretOffset(float offset) {
+            mCenterCaretOffset = offset;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCenterCaretAbsOffset(float offset) {
+            mCenterCaretAbsOffset = offset;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBubbleColor(@Nullable ColorStateList color) {
+            mBubbleColor = color;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBorderWidth(@Px int width) {
+            mBorderWidth = width;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBorderColor(@Nullable ColorStateList color) {
+            mBorderColor = color;
+            return this;
+        }
+
+        /**
+         * Sets window space gradient fill, see {@link MessageBubbleView#setBubbleGradient(BubbleGradient)}
+         */
+        @NonNull
+        public Builder setGradient(@Nullable BubbleGradient gradient) {
+            mGradient = gradient;
+            return this;
+        }
+
+        /**
+         * Sets touch feedback color, see {@link BubbleDrawable#setRippleColor(ColorStateList)}
+         */
+        @NonNull
+        public Builder setRippleColor(@Nullable ColorStateList color) {
+            mRippleColor = color;
+            return this;
+        }
+
+        @NonNull
+        public Builder setWrapContentMaxWidthPercent(@FloatRange(from = 0, to = 1) float percent) {
+            mWrapContentMaxWidthPercent = percent;
+            return this;
+        }
+
+        @NonNull
+        public BubbleStyle build() {
+            return new BubbleStyle(this);
+        }
+    }
+}
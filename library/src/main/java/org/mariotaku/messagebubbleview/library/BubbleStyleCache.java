@@ -0,0 +1,186 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Bubble attributes resolved at inflation, cached per theme. Views that take all bubble
+ * attributes from theme, default style or a {@code style} attribute, e.g. rows of a list,
+ * only parse them once per theme.
+ * <p>
+ * Themes are held weakly, and entries are keyed on resource configuration too, so an
+ * activity handling configuration changes itself still resolves new densities, night mode
+ * or font scale. A theme modified after bubbles were inflated with it needs {@link #clear()}.
+ */
+public final class BubbleStyleCache {
+
+    private static final WeakHashMap<Resources.Theme, HashMap<Key, ResolvedStyle>> sStyles =
+            new WeakHashMap<>();
+    private static final Key sLookupKey = new Key();
+    private static int sHitCount, sMissCount;
+
+    private BubbleStyleCache() {
+    }
+
+    public static synchronized void clear() {
+        sStyles.clear();
+    }
+
+    public static synchronized int getHitCount() {
+        return sHitCount;
+    }
+
+    public static synchronized int getMissCount() {
+        return sMissCount;
+    }
+
+    /**
+     * Resolves bubble attributes of a view, from cache if {@code attrs} has no bubble attribute
+     * of its own
+     */
+    @NonNull
+    static ResolvedStyle obtain(@NonNull Context context, @Nullable AttributeSet attrs,
+                                int defStyleAttr, int defStyleRes) {
+        if (hasBubbleAttributes(attrs)) {
+            return resolve(context, attrs, defStyleAttr, defStyleRes);
+        }
+        final Resources.Theme theme = context.getTheme();
+        final int styleAttr = attrs != null ? attrs.getStyleAttribute() : 0;
+        final Configuration config = context.getResources().getConfiguration();
+        synchronized (BubbleStyleCache.class) {
+            HashMap<Key, ResolvedStyle> styles = sStyles.get(theme);
+            if (styles != null) {
+                sLookupKey.set(defStyleAttr, defStyleRes, styleAttr, config);
+                final ResolvedStyle style = styles.get(sLookupKey);
+                sLookupKey.config = null;
+                if (style != null) {
+                    sHitCount++;
+                    return style;
+                }
+            }
+        }
+        final ResolvedStyle style = resolve(context, attrs, defStyleAttr, defStyleRes);
+        synchronized (BubbleStyleCache.class) {
+            sMissCount++;
+            HashMap<Key, ResolvedStyle> styles = sStyles.get(theme);
+            if (styles == null) {
+                styles = new HashMap<>();
+                sStyles.put(theme, styles);
+            }
+            final Key key = new Key();
+            // Resources update their configuration in place, keep a snapshot
+            key.set(defStyleAttr, defStyleRes, styleAttr, new Configuration(config));
+            styles.put(key, style);
+        }
+        return style;
+    }
+
+    private static boolean hasBubbleAttributes(@Nullable AttributeSet attrs) {
+        if (attrs == null) return false;
+        final int[] bubbleAttrs = R.styleable.MessageBubbleView;
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            final int attr = attrs.getAttributeNameResource(i);
+            for (int bubbleAttr : bubbleAttrs) {
+                if (attr == bubbleAttr) return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static ResolvedStyle resolve(@NonNull Context context, @Nullable AttributeSet attrs,
+                                         int defStyleAttr, int defStyleRes) {
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MessageBubbleView,
+                defStyleAttr, defStyleRes);
+        final BubbleStyle.Builder builder = new BubbleStyle.Builder(context);
+        builder.setCornerRadius(a.getDimensionPixelSize(R.styleable.MessageBubbleView_cornerRadius, 0));
+        builder.setBubbleColor(a.getColorStateList(R.styleable.MessageBubbleView_bubbleColor));
+        builder.setBorderWidth(a.getDimensionPixelSize(R.styleable.MessageBubbleView_bubbleBorderWidth, 0));
+        builder.setBorderColor(a.getColorStateList(R.styleable.MessageBubbleView_bubbleBorderColor));
+        builder.setRippleColor(a.getColorStateList(R.styleable.MessageBubbleView_bubbleRippleColor));
+        builder.setCaretPosition(a.getInt(R.styleable.MessageBubbleView_caretPosition, MessageBubbleView.NONE));
+        builder.setWrapContentMaxWidthPercent(a.getFraction(R.styleable.MessageBubbleView_wrapContentMaxWidthPercent, 1, 1, 0));
+        if (a.hasValue(R.styleable.MessageBubbleView_caretWidth) && a.hasValue(R.styleable.MessageBubbleView_caretHeight)) {
+            DisplayMetrics dm = context.getResources().getDisplayMetrics();
+            TypedValue tv = new TypedValue();
+            builder.setCaretSize(BubbleDrawable.getCaretDimension(a, R.styleable.MessageBubbleView_caretWidth, dm, tv),
+                    BubbleDrawable.getCaretDimension(a, R.styleable.MessageBubbleView_caretHeight, dm, tv));
+        }
+        final CaretShape caretShape = BubbleDrawable.getCaretShape(a.getInt(R.styleable.MessageBubbleView_caretShape, -1));
+        if (caretShape != null) {
+            builder.setCaretShape(caretShape);
+        }
+        final ResolvedStyle style = new ResolvedStyle(builder.build(),
+                a.getInt(R.styleable.MessageBubbleView_renderMode, MessageBubbleView.RENDER_MODE_PATH),
+                a.getBoolean(R.styleable.MessageBubbleView_shrinkWrap, false),
+                a.getBoolean(R.styleable.MessageBubbleView_clipChildrenToBubble, false));
+        a.recycle();
+        return style;
+    }
+
+    /**
+     * Everything bubble views read from their attributes
+     */
+    static final class ResolvedStyle {
+
+        @NonNull
+        final BubbleStyle style;
+        final int renderMode;
+        final boolean shrinkWrap;
+        final boolean clipChildrenToBubble;
+
+        ResolvedStyle(@NonNull BubbleStyle style, int renderMode, boolean shrinkWrap,
+                      boolean clipChildrenToBubble) {
+            this.style = style;
+            this.renderMode = renderMode;
+            this.shrinkWrap = shrinkWrap;
+            this.clipChildrenToBubble = clipChildrenToBubble;
+        }
+    }
+
+    private static final class Key {
+
+        int defStyleAttr, defStyleRes, styleAttr;
+        Configuration config;
+
+        void set(int defStyleAttr, int defStyleRes, int styleAttr, Configuration config) {
+            this.defStyleAttr = defStyleAttr;
+            this.defStyleRes = defStyleRes;
+            this.styleAttr = styleAttr;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return defStyleAttr == key.defStyleAttr
+                    && defStyleRes == key.defStyleRes
+                    && styleAttr == key.styleAttr
+                    && (config != null ? config.equals(key.config) : key.config == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = defStyleAttr;
+            result = 31 * result + defStyleRes;
+            result = 31 * result + styleAttr;
+            result = 31 * result + (config != null ? config.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.text.Layout;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.core.view.ViewCompat;
+
+/**
+ * Read only transcript drawing all visible messages in a single view, e.g. for search results
+ * or exported threads. Messages come with pre-built {@link Layout}s, so scrolling neither
+ * creates nor measures any view, and only messages intersecting viewport are drawn. Message
+ * positions are looked up from prefix sums of their heights.
+ */
+public class BubbleTranscriptView extends View {
+
+    private final BubbleRenderer mRenderer = new BubbleRenderer();
+    private final Rect mPadding = new Rect();
+    private final Rect mContentBounds = new Rect();
+    private final OverScroller mScroller;
+    private final GestureDetector mGestureDetector;
+
+    @NonNull
+    private List<Message> mMessages = Collections.emptyList();
+    // mOffsets[i] is top of message i, mOffsets[count] is total height
+    private int[] mOffsets = new int[1];
+    private int[] mContentWidths = new int[0];
+    private int mMessageSpacing;
+    private int mBubblePaddingHorizontal, mBubblePaddingVertical;
+
+    public BubbleTranscriptView(Context context) {
+        this(context, null);
+    }
+
+    public BubbleTranscriptView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public BubbleTranscriptView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mScroller = new OverScroller(context);
+        mGestureDetector = new GestureDetector(context, new ScrollListener());
+        setWillNotDraw(false);
+    }
+
+    /**
+     * Sets messages to show, list must not be modified afterwards without calling
+     * {@link #notifyMessagesChanged()}
+     */
+    public void setMessages(@NonNull List<Message> messages) {
+        mMessages = messages;
+        notifyMessagesChanged();
+    }
+
+    @NonNull
+    public List<Message> getMessages() {
+        return mMessages;
+    }
+
+    /**
+     * Rebuilds height index, call after messages list changed
+     */
+    public void notifyMessagesChanged() {
+        updateOffsets();
+        requestLayout();
+        invalidate();
+    }
+
+    public void setMessageSpacing(@Px int spacing) {
+        if (mMessageSpacing == spacing) return;
+        mMessageSpacing = spacing;
+        notifyMessagesChanged();
+    }
+
+    @Px
+    public int getMessageSpacing() {
+        return mMessageSpacing;
+    }
+
+    /**
+     * Sets space between bubble body and text, on top of caret padding
+     */
+    public void setBubblePadding(@Px int horizontal, @Px int vertical) {
+        if (mBubblePaddingHorizontal == horizontal && mBubblePaddingVertical == vertical) return;
+        mBubblePaddingHorizontal = horizontal;
+        mBubblePaddingVertical = vertical;
+        notifyMessagesChanged();
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mRenderer.setRenderMode(mode);
+        invalidate();
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mRenderer.getRenderMode();
+    }
+
+    /**
+     * @return Index of message at {@code y} in view coordinates, or {@code -1} if none
+     */
+    public int getMessageAt(int y) {
+        final int index = findMessage(y - getPaddingTop() + getScrollY());
+        if (index < 0 || index >= mMessages.size()) return -1;
+        if (y - getPaddingTop() + getScrollY() >= mOffsets[index + 1] - mMessageSpacing) return -1;
+        return index;
+    }
+
+    public void scrollToMessage(int index) {
+        if (index < 0 || index >= mMessages.size()) {
+            throw new IndexOutOfBoundsException("Message " + index + " of " + mMessages.size());
+        }
+        mScroller.forceFinished(true);
+        scrollTo(0, mOffsets[index]);
+    }
+
+    @Override
+    public void scrollTo(int x, int y) {
+        super.scrollTo(0, Math.max(0, Math.min(getMaxScrollY(), y)));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return mGestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(0, mScroller.getCurrY());
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    @Override
+    public void onRtlPropertiesChanged(int layoutDirection) {
+        super.onRtlPropertiesChanged(layoutDirection);
+        mRenderer.setLayoutDirection(layoutDirection);
+        // Start and end caret positions may now pad other sides. Called while measuring, so
+        // measure pass already in progress picks up new offsets without another layout.
+        updateOffsets();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        final int height = resolveSize(mOffsets[mMessages.size()] + getPaddingTop()
+                + getPaddingBottom(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollTo(0, getScrollY());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final List<Message> messages = mMessages;
+        final int count = messages.size();
+        if (count == 0) return;
+        final int paddingTop = getPaddingTop();
+        final int top = getScrollY() - paddingTop;
+        final int bottom = top + getHeight();
+        final boolean rtl = ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+        final int left = getPaddingLeft(), right = getWidth() - getPaddingRight();
+        for (int i = Math.max(0, findMessage(top)); i < count && mOffsets[i] < bottom; i++) {
+            final Message message = messages.get(i);
+            mRenderer.getPadding(message.mStyle, mPadding);
+            final int bubbleWidth = mContentWidths[i] + mPadding.left + mPadding.right;
+            final int bubbleLeft = message.mEnd != rtl ? right - bubbleWidth : left;
+            final int contentHeight = mOffsets[i + 1] - mOffsets[i] - mMessageSpacing
+                    - mPadding.top - mPadding.bottom;
+            mRenderer.drawAroundContent(canvas, message.mStyle, bubbleLeft,
+                    paddingTop + mOffsets[i], mContentWidths[i], contentHeight, mContentBounds);
+            final int saveCount = canvas.save();
+            canvas.translate(mContentBounds.left + mBubblePaddingHorizontal - message.mTextLeft,
+                    mContentBounds.top + mBubblePaddingVertical);
+            message.mLayout.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return mOffsets[mMessages.size()] + getPaddingTop() + getPaddingBottom();
+    }
+
+    @Override
+    protected int computeVerticalScrollOffset() {
+        return getScrollY();
+    }
+
+    @Override
+    protected int computeVerticalScrollExtent() {
+        return getHeight();
+    }
+
+    private int getMaxScrollY() {
+        return Math.max(0, computeVerticalScrollRange() - getHeight());
+    }
+
+    /**
+     * @return Index of last message starting at or above {@code y} in content coordinates
+     */
+    private int findMessage(int y) {
+        int low = 0, high = mMessages.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mOffsets[mid] <= y) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private void updateOffsets() {
+        final List<Message> messages = mMessages;
+        final int count = messages.size();
+        if (mOffsets.length < count + 1) {
+            mOffsets = new int[count + 1];
+            mContentWidths = new int[count];
+        }
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            final Message message = messages.get(i);
+            mRenderer.getPadding(message.mStyle, mPadding);
+            mOffsets[i] = offset;
+            mContentWidths[i] = message.getTextWidth() + mBubblePaddingHorizontal * 2;
+            offset += message.mLayout.getHeight() + mBubblePaddingVertical * 2 + mPadding.top
+                    + mPadding.bottom + mMessageSpacing;
+        }
+        mOffsets[count] = offset;
+    }
+
+    /**
+     * Message with its pre-built text layout. Bubble is aligned to end side of transcript if
+     * {@code end} is {@code true}, caret is taken from {@code style}.
+     */
+    public static final class Message {
+
+        @NonNull
+        final Layout mLayout;
+        @NonNull
+        final BubbleStyle mStyle;
+        final boolean mEnd;
+        private float mTextLeft;
+        private int mTextWidth = -1;
+
+        public Message(@NonNull Layout layout, @NonNull BubbleStyle style, boolean end) {
+            mLayout = layout;
+            mStyle = style;
+            mEnd = end;
+        }
+
+        @NonNull
+        public Layout getLayout() {
+            return mLayout;
+        }
+
+        @NonNull
+        public BubbleStyle getStyle() {
+            return mStyle;
+        }
+
+        public boolean isEnd() {
+            return mEnd;
+        }
+
+        /**
+         * Width of text lines, so bubbles shrink to their text whatever width and alignment
+         * layout was built with
+         */
+        int getTextWidth() {
+            if (mTextWidth >= 0) return mTextWidth;
+            float left = Float.MAX_VALUE, right = 0;
+            for (int i = 0, j = mLayout.getLineCount(); i < j; i++) {
+                left = Math.min(left, mLayout.getLineLeft(i));
+                right = Math.max(right, mLayout.getLineRight(i));
+            }
+            mTextLeft = Math.min(left, right);
+            mTextWidth = (int) Math.ceil(right - mTextLeft);
+            return mTextWidth;
+        }
+    }
+
+    private class ScrollListener extends GestureDetector.SimpleOnGestureListener {
+
+        @Override
+        public boolean onDown(MotionEvent e) {
+            mScroller.forceFinished(true);
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            scrollBy(0, Math.round(distanceY));
+            awakenScrollBars();
+            return true;
+        }
+
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            mScroller.fling(0, getScrollY(), 0, Math.round(-velocityY), 0, 0, 0, getMaxScrollY());
+            ViewCompat.postInvalidateOnAnimation(BubbleTranscriptView.this);
+            return true;
+        }
+    }
+}
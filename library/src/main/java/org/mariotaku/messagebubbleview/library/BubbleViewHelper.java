@@ -0,0 +1,301 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.TextView;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.GravityCompat;
+import androidx.core.view.ViewCompat;
+
+/**
+ * Bubble background handling shared by {@link MessageBubbleView} and
+ * {@link CompactMessageBubbleView}
+ */
+final class BubbleViewHelper implements ViewTreeObserver.OnPreDrawListener {
+
+    private final View mView;
+    private final boolean mKeepOwnPadding;
+    private final Rect mOwnPadding = new Rect();
+    private final Rect mBackgroundPadding = new Rect();
+    private final Rect mTempPadding = new Rect();
+    private final ShrinkWrapCache.Key mShrinkWrapKey = new ShrinkWrapCache.Key();
+    private final int[] mWindowLocation = new int[2];
+
+    private float mWrapContentMaxWidthPercent;
+    private boolean mShrinkWrapEnabled;
+    private boolean mAttached, mPreDrawListenerAdded;
+
+    BubbleViewHelper(@NonNull View view) {
+        this(view, false);
+    }
+
+    /**
+     * @param keepOwnPadding {@code true} to add bubble padding to padding view was created
+     *                       with, instead of replacing it, e.g. for text drawn by view itself
+     */
+    BubbleViewHelper(@NonNull View view, boolean keepOwnPadding) {
+        mView = view;
+        mKeepOwnPadding = keepOwnPadding;
+    }
+
+    /**
+     * @param defStyleAttr Theme attribute of default bubble style, e.g.
+     *                     {@link R.attr#messageBubbleViewStyle}
+     */
+    void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        if (mKeepOwnPadding) {
+            // Setting background replaces it with bubble padding
+            mOwnPadding.set(mView.getPaddingLeft(), mView.getPaddingTop(),
+                    mView.getPaddingRight(), mView.getPaddingBottom());
+        }
+        ViewCompat.setBackground(mView, new BubbleDrawable());
+        final BubbleStyleCache.ResolvedStyle resolved = BubbleStyleCache.obtain(context, attrs,
+                defStyleAttr, defStyleRes);
+        getDrawable().setRenderMode(resolved.renderMode);
+        mShrinkWrapEnabled = resolved.shrinkWrap;
+        setClipChildrenToBubble(resolved.clipChildrenToBubble);
+        applyStyle(resolved.style);
+    }
+
+    @NonNull
+    BubbleDrawable getDrawable() {
+        final Drawable background = mView.getBackground();
+        if (!(background instanceof BubbleDrawable)) {
+            throw new IllegalArgumentException("You can't set custom background for " + mView.getClass().getSimpleName());
+        }
+        return (BubbleDrawable) background;
+    }
+
+    int getWidthMeasureSpec(int widthMeasureSpec) {
+        ViewGroup.LayoutParams lp = mView.getLayoutParams();
+        if ((lp == null || lp.width == ViewGroup.LayoutParams.WRAP_CONTENT)
+                && MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.AT_MOST
+                && mWrapContentMaxWidthPercent > 0) {
+            int width = (int) Math.max(ViewCompat.getMinimumWidth(mView), MeasureSpec.getSize(widthMeasureSpec) * mWrapContentMaxWidthPercent);
+            return MeasureSpec.makeMeasureSpec(width, MeasureSpec.AT_MOST);
+        }
+        return widthMeasureSpec;
+    }
+
+    /**
+     * @return Single text child to shrink wrap, or {@code null} if shrink wrap doesn't apply
+     */
+    @Nullable
+    TextView getShrinkWrapChild(int widthMeasureSpec) {
+        if (!mShrinkWrapEnabled || !(mView instanceof ViewGroup)
+                || MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.AT_MOST) {
+            return null;
+        }
+        final ViewGroup group = (ViewGroup) mView;
+        if (group.getChildCount() != 1) return null;
+        final View child = group.getChildAt(0);
+        if (!(child instanceof TextView) || child.getVisibility() == View.GONE
+                || child.getLayoutParams().width != ViewGroup.LayoutParams.WRAP_CONTENT) {
+            return null;
+        }
+        return (TextView) child;
+    }
+
+    /**
+     * @return Previously computed shrink wrapped width of {@code child}, or {@code -1}
+     */
+    int getCachedShrinkWrapWidth(@NonNull TextView child, int widthMeasureSpec) {
+        if (!mShrinkWrapKey.set(child, getShrinkWrapAvailableWidth(child, widthMeasureSpec))) {
+            return -1;
+        }
+        final int width = ShrinkWrapCache.get(mShrinkWrapKey);
+        mShrinkWrapKey.clear();
+        return width;
+    }
+
+    /**
+     * Computes width of measured {@code child} fitting its widest line, caches it for plain text
+     *
+     * @return Shrink wrapped width, or {@code -1} if child can't get narrower
+     */
+    int computeShrinkWrapWidth(@NonNull TextView child, int widthMeasureSpec) {
+        final int width = ShrinkWrapCache.computeWidth(child);
+        if (width < 0) return -1;
+        if (mShrinkWrapKey.set(child, getShrinkWrapAvailableWidth(child, widthMeasureSpec))) {
+            ShrinkWrapCache.put(mShrinkWrapKey, width);
+            mShrinkWrapKey.clear();
+        }
+        return width;
+    }
+
+    /**
+     * @return Bubble width measure spec making {@code child} exactly {@code childWidth} wide
+     */
+    int getShrinkWrapMeasureSpec(@NonNull TextView child, int childWidth) {
+        final ViewGroup.MarginLayoutParams lp = (ViewGroup.MarginLayoutParams) child.getLayoutParams();
+        final int width = childWidth + lp.leftMargin + lp.rightMargin + mView.getPaddingLeft()
+                + mView.getPaddingRight();
+        return MeasureSpec.makeMeasureSpec(Math.max(width, ViewCompat.getMinimumWidth(mView)),
+                MeasureSpec.EXACTLY);
+    }
+
+    private int getShrinkWrapAvailableWidth(@NonNull TextView child, int widthMeasureSpec) {
+        final ViewGroup.MarginLayoutParams lp = (ViewGroup.MarginLayoutParams) child.getLayoutParams();
+        return MeasureSpec.getSize(widthMeasureSpec) - lp.leftMargin - lp.rightMargin
+                - mView.getPaddingLeft() - mView.getPaddingRight();
+    }
+
+    void setShrinkWrapEnabled(boolean enabled) {
+        if (mShrinkWrapEnabled == enabled) return;
+        mShrinkWrapEnabled = enabled;
+        mView.requestLayout();
+    }
+
+    boolean isShrinkWrapEnabled() {
+        return mShrinkWrapEnabled;
+    }
+
+    void setClipChildrenToBubble(boolean clip) {
+        getDrawable().setClipOutline(clip);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mView.setClipToOutline(clip);
+        }
+    }
+
+    boolean isClipChildrenToBubble() {
+        return getDrawable().isClipOutline();
+    }
+
+    void setCaretPosition(int position) {
+        final int absPosition = GravityCompat.getAbsoluteGravity(position, ViewCompat.getLayoutDirection(mView));
+        getDrawable().setCaretPosition(position, absPosition);
+        resetBackground();
+    }
+
+    // Caret offsets and corner radius never change padding, no need to reset background
+    void setCenterCaretOffset(float offset) {
+        getDrawable().setCenterCaretOffset(offset);
+    }
+
+    void setCenterCaretAbsOffset(float offset) {
+        getDrawable().setCenterCaretAbsOffset(offset);
+    }
+
+    void setCaretShape(@NonNull CaretShape shape) {
+        getDrawable().setCaretShape(shape);
+    }
+
+    void setCaretSize(int width, int height) {
+        getDrawable().setCaretSize(width, height);
+        resetBackground();
+    }
+
+    void setCornerRadius(float radius) {
+        getDrawable().setCornerRadius(radius);
+    }
+
+    void setCornerRadii(float topStart, float topEnd, float bottomEnd, float bottomStart) {
+        getDrawable().setCornerRadii(topStart, topEnd, bottomEnd, bottomStart,
+                ViewCompat.getLayoutDirection(mView));
+    }
+
+    void setWrapContentMaxWidthPercent(float percent) {
+        if (mWrapContentMaxWidthPercent == percent) return;
+        mWrapContentMaxWidthPercent = percent;
+        mView.requestLayout();
+    }
+
+    float getWrapContentMaxWidthPercent() {
+        return mWrapContentMaxWidthPercent;
+    }
+
+    void setGradient(@Nullable BubbleGradient gradient) {
+        getDrawable().setGradient(gradient);
+        updatePreDrawListener();
+    }
+
+    void applyStyle(@NonNull BubbleStyle style) {
+        getDrawable().setStyle(style, ViewCompat.getLayoutDirection(mView));
+        setWrapContentMaxWidthPercent(style.getWrapContentMaxWidthPercent());
+        updatePreDrawListener();
+        resetBackground();
+    }
+
+    void onAttachedToWindow() {
+        mAttached = true;
+        updatePreDrawListener();
+    }
+
+    void onDetachedFromWindow() {
+        mAttached = false;
+        updatePreDrawListener();
+    }
+
+    /**
+     * Moves gradient to window position, catches scrolling of any ancestor without
+     * invalidating or laying out anything when position didn't change
+     */
+    @Override
+    public boolean onPreDraw() {
+        mView.getLocationInWindow(mWindowLocation);
+        final int top = mWindowLocation[1];
+        getDrawable().setGradientSpan(-top, mView.getRootView().getHeight() - top);
+        return true;
+    }
+
+    @NonNull
+    BubbleStyle getStyle() {
+        return getDrawable().buildStyle(new BubbleStyle.Builder(mView.getContext()))
+                .setWrapContentMaxWidthPercent(mWrapContentMaxWidthPercent)
+                .build();
+    }
+
+    private void updatePreDrawListener() {
+        final boolean add = mAttached && getDrawable().getGradient() != null;
+        if (mPreDrawListenerAdded == add) return;
+        mPreDrawListenerAdded = add;
+        if (add) {
+            mView.getViewTreeObserver().addOnPreDrawListener(this);
+        } else {
+            mView.getViewTreeObserver().removeOnPreDrawListener(this);
+        }
+    }
+
+    private void resetBackground() {
+        BubbleDrawable drawable = getDrawable();
+        drawable.getPadding(mTempPadding);
+        if (mKeepOwnPadding) {
+            updateOwnPadding(mTempPadding);
+            return;
+        }
+        // Re-attaching background is only needed for View to pick up new padding
+        if (mTempPadding.equals(mBackgroundPadding)) return;
+        mBackgroundPadding.set(mTempPadding);
+        if (BubbleMetrics.sEnabled) {
+            BubbleMetrics.recordRelayout();
+        }
+        ViewCompat.setBackground(mView, null);
+        ViewCompat.setBackground(mView, drawable);
+    }
+
+    private void updateOwnPadding(Rect bubblePadding) {
+        final Rect own = mOwnPadding;
+        final int left = own.left + bubblePadding.left, top = own.top + bubblePadding.top;
+        final int right = own.right + bubblePadding.right;
+        final int bottom = own.bottom + bubblePadding.bottom;
+        if (left == mView.getPaddingLeft() && top == mView.getPaddingTop()
+                && right == mView.getPaddingRight() && bottom == mView.getPaddingBottom()) {
+            return;
+        }
+        if (BubbleMetrics.sEnabled) {
+            BubbleMetrics.recordRelayout();
+        }
+        mView.setPadding(left, top, right, bottom);
+    }
+}
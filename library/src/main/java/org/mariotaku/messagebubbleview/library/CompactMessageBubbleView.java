@@ -0,0 +1,376 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.ColorFilter;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+
+import androidx.annotation.Dimension;
+import androidx.annotation.FloatRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.Px;
+import androidx.core.view.ViewCompat;
+
+/**
+ * Lightweight {@link MessageBubbleView} for bubbles holding a single child. Supports same
+ * attributes and measures every child exactly once, repeated passes with unchanged measure specs
+ * are skipped by measure cache of {@link View} itself.
+ * <p>
+ * Children are stacked at top start corner inside bubble padding. Apart from a shrink wrapped
+ * text measured for the first time, they are never measured a second time, so
+ * {@code match_parent} children don't stretch to a minimum size larger than their content.
+ */
+public class CompactMessageBubbleView extends ViewGroup {
+
+    private final BubbleViewHelper mHelper = new BubbleViewHelper(this);
+
+    public CompactMessageBubbleView(Context context) {
+        this(context, null);
+    }
+
+    public CompactMessageBubbleView(Context context, AttributeSet attrs) {
+        this(context, attrs, R.attr.messageBubbleViewStyle);
+    }
+
+    public CompactMessageBubbleView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mHelper.init(context, attrs, defStyleAttr, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public CompactMessageBubbleView(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        mHelper.init(context, attrs, defStyleAttr, defStyleRes);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int bubbleWidthSpec = mHelper.getWidthMeasureSpec(widthMeasureSpec);
+        final TextView shrinkWrapChild = mHelper.getShrinkWrapChild(bubbleWidthSpec);
+        int shrinkWrapWidth = -1;
+        if (shrinkWrapChild != null) {
+            shrinkWrapWidth = mHelper.getCachedShrinkWrapWidth(shrinkWrapChild, bubbleWidthSpec);
+            if (shrinkWrapWidth >= 0) {
+                bubbleWidthSpec = mHelper.getShrinkWrapMeasureSpec(shrinkWrapChild, shrinkWrapWidth);
+            }
+        }
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int maxWidth = 0, maxHeight = 0, childState = 0;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) continue;
+            measureChildWithMargins(child, bubbleWidthSpec, 0, heightMeasureSpec, 0);
+            if (child == shrinkWrapChild && shrinkWrapWidth < 0) {
+                // Only a text seen for the first time at this width is measured again
+                shrinkWrapWidth = mHelper.computeShrinkWrapWidth(shrinkWrapChild, bubbleWidthSpec);
+                if (shrinkWrapWidth >= 0) {
+                    bubbleWidthSpec = mHelper.getShrinkWrapMeasureSpec(shrinkWrapChild, shrinkWrapWidth);
+                    measureChildWithMargins(child, bubbleWidthSpec, 0, heightMeasureSpec, 0);
+                }
+            }
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
+            childState = combineMeasuredStates(childState, child.getMeasuredState());
+        }
+        maxWidth = Math.max(maxWidth + horizontalPadding, getSuggestedMinimumWidth());
+        maxHeight = Math.max(maxHeight + verticalPadding, getSuggestedMinimumHeight());
+        final int measuredWidth = resolveSizeAndState(maxWidth, bubbleWidthSpec, childState);
+        final int measuredHeight = resolveSizeAndState(maxHeight, heightMeasureSpec,
+                childState << MEASURED_HEIGHT_STATE_SHIFT);
+        setMeasuredDimension(measuredWidth, measuredHeight);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final boolean rtl = ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
+        final int parentLeft = getPaddingLeft(), parentRight = r - l - getPaddingRight();
+        final int parentTop = getPaddingTop();
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) continue;
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            final int width = child.getMeasuredWidth(), height = child.getMeasuredHeight();
+            final int childLeft;
+            if (rtl) {
+                childLeft = parentRight - lp.rightMargin - width;
+            } else {
+                childLeft = parentLeft + lp.leftMargin;
+            }
+            final int childTop = parentTop + lp.topMargin;
+            child.layout(childLeft, childTop, childLeft + width, childTop + height);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mHelper.onAttachedToWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mHelper.onDetachedFromWindow();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof MarginLayoutParams;
+    }
+
+    @Override
+    protected MarginLayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public MarginLayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected MarginLayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if (p instanceof MarginLayoutParams) {
+            return new MarginLayoutParams((MarginLayoutParams) p);
+        }
+        return new MarginLayoutParams(p);
+    }
+
+    @SuppressWarnings("unused")
+    public void setBubbleColorFilter(ColorFilter cf) {
+        mHelper.getDrawable().setColorFilter(cf);
+    }
+
+    @SuppressWarnings("unused")
+    public ColorFilter getBubbleColorFilter() {
+        return mHelper.getDrawable().getColorFilter();
+    }
+
+    @SuppressWarnings("unused")
+    public void clearBubbleColorFilter() {
+        mHelper.getDrawable().clearColorFilter();
+    }
+
+    @SuppressWarnings("unused")
+    public void setBubbleColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setColor(color);
+    }
+
+    @Nullable
+    @SuppressWarnings("unused")
+    public ColorStateList getBubbleColor() {
+        return mHelper.getDrawable().getColor();
+    }
+
+    /**
+     * Sets width of border stroked inside bubble outline, see
+     * {@link BubbleDrawable#setBorderWidth(int)}
+     */
+    public void setBubbleBorderWidth(@Px int width) {
+        mHelper.getDrawable().setBorderWidth(width);
+    }
+
+    @Px
+    public int getBubbleBorderWidth() {
+        return mHelper.getDrawable().getBorderWidth();
+    }
+
+    public void setBubbleBorderColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setBorderColor(color);
+    }
+
+    @Nullable
+    public ColorStateList getBubbleBorderColor() {
+        return mHelper.getDrawable().getBorderColor();
+    }
+
+    /**
+     * @see MessageBubbleView#setBubbleRippleColor(ColorStateList)
+     */
+    public void setBubbleRippleColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setRippleColor(color);
+    }
+
+    @Nullable
+    public ColorStateList getBubbleRippleColor() {
+        return mHelper.getDrawable().getRippleColor();
+    }
+
+    /**
+     * @see MessageBubbleView#setBubbleGradient(BubbleGradient)
+     */
+    public void setBubbleGradient(@Nullable BubbleGradient gradient) {
+        mHelper.setGradient(gradient);
+    }
+
+    @Nullable
+    public BubbleGradient getBubbleGradient() {
+        return mHelper.getDrawable().getGradient();
+    }
+
+    /**
+     * @see MessageBubbleView#setBubbleImageBitmap(Bitmap)
+     */
+    public void setBubbleImageBitmap(@Nullable Bitmap image) {
+        mHelper.getDrawable().setImageBitmap(image);
+    }
+
+    @Nullable
+    public Bitmap getBubbleImageBitmap() {
+        return mHelper.getDrawable().getImageBitmap();
+    }
+
+    @MessageBubbleView.CaretPosition
+    @SuppressWarnings("unused")
+    public int getCaretPosition() {
+        return mHelper.getDrawable().getCaretPosition();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCaretPosition(@MessageBubbleView.CaretPosition int position) {
+        mHelper.setCaretPosition(position);
+    }
+
+    @SuppressWarnings("unused")
+    public float getCenterCaretOffset() {
+        return mHelper.getDrawable().getCenterCaretOffset();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCenterCaretOffset(float offset) {
+        mHelper.setCenterCaretOffset(offset);
+    }
+
+    @SuppressWarnings("unused")
+    public float getCenterCaretAbsOffset() {
+        return mHelper.getDrawable().getCenterCaretAbsOffset();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCenterCaretAbsOffset(float offset) {
+        mHelper.setCenterCaretAbsOffset(offset);
+    }
+
+    @SuppressWarnings("unused")
+    public void setCaretSize(@Px int width, @Px int height) {
+        mHelper.setCaretSize(width, height);
+    }
+
+    /**
+     * @see MessageBubbleView#setCaretShape(CaretShape)
+     */
+    public void setCaretShape(@NonNull CaretShape shape) {
+        mHelper.setCaretShape(shape);
+    }
+
+    @NonNull
+    public CaretShape getCaretShape() {
+        return mHelper.getDrawable().getCaretShape();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCornerRadius(@Dimension float radius) {
+        mHelper.setCornerRadius(radius);
+    }
+
+    @Dimension
+    @SuppressWarnings("unused")
+    public float getCornerRadius() {
+        return mHelper.getDrawable().getCornerRadius();
+    }
+
+    /**
+     * @see MessageBubbleView#setCornerRadii(float, float, float, float)
+     */
+    public void setCornerRadii(@Dimension float topStart, @Dimension float topEnd,
+                               @Dimension float bottomEnd, @Dimension float bottomStart) {
+        mHelper.setCornerRadii(topStart, topEnd, bottomEnd, bottomStart);
+    }
+
+    /**
+     * @return Radii in top start, top end, bottom end, bottom start order, or {@code null} if
+     * all corners use {@link #getCornerRadius()}
+     */
+    @Nullable
+    public float[] getCornerRadii() {
+        return mHelper.getDrawable().getCornerRadii();
+    }
+
+    @SuppressWarnings("unused")
+    public void setOutlineEnabled(boolean enabled) {
+        mHelper.getDrawable().setOutlineEnabled(enabled);
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isOutlineEnabled() {
+        return mHelper.getDrawable().isOutlineEnabled();
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mHelper.getDrawable().setRenderMode(mode);
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mHelper.getDrawable().getRenderMode();
+    }
+
+    public void setWrapContentMaxWidthPercent(@FloatRange(from = 0, to = 1) float percent) {
+        mHelper.setWrapContentMaxWidthPercent(percent);
+    }
+
+    public float getWrapContentMaxWidthPercent() {
+        return mHelper.getWrapContentMaxWidthPercent();
+    }
+
+    /**
+     * @see MessageBubbleView#setClipChildrenToBubble(boolean)
+     */
+    public void setClipChildrenToBubble(boolean clip) {
+        mHelper.setClipChildrenToBubble(clip);
+    }
+
+    public boolean isClipChildrenToBubble() {
+        return mHelper.isClipChildrenToBubble();
+    }
+
+    /**
+     * @see MessageBubbleView#setShrinkWrapEnabled(boolean)
+     */
+    public void setShrinkWrapEnabled(boolean enabled) {
+        mHelper.setShrinkWrapEnabled(enabled);
+    }
+
+    public boolean isShrinkWrapEnabled() {
+        return mHelper.isShrinkWrapEnabled();
+    }
+
+    /**
+     * @see MessageBubbleView#applyStyle(BubbleStyle)
+     */
+    public void applyStyle(@NonNull BubbleStyle style) {
+        mHelper.applyStyle(style);
+    }
+
+    @NonNull
+    public BubbleStyle getStyle() {
+        return mHelper.getStyle();
+    }
+
+}
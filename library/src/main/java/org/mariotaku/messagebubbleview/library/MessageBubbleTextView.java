@@ -0,0 +1,288 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.ColorFilter;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.widget.TextView;
+
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+
+import androidx.annotation.Dimension;
+import androidx.annotation.FloatRange;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.Px;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+/**
+ * Text message bubble drawing its text directly, without a child view. Supports same attributes
+ * as {@link MessageBubbleView}.
+ * <p>
+ * To keep text measurement off the UI thread, get {@link #getTextMetricsParams()} while binding,
+ * build {@link PrecomputedTextCompat} on a background executor, then pass result to
+ * {@link #setPrecomputedText(PrecomputedTextCompat)}. {@link #getTextLayoutWidth(int)} gives
+ * width for layouts built off thread, e.g. to know bubble height in advance.
+ * <p>
+ * Padding this view is inflated with insets text inside bubble, caret padding is added to it.
+ */
+public class MessageBubbleTextView extends TextView {
+
+    private final BubbleViewHelper mHelper = new BubbleViewHelper(this, true);
+
+    public MessageBubbleTextView(Context context) {
+        this(context, null);
+    }
+
+    public MessageBubbleTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, android.R.attr.textViewStyle);
+    }
+
+    public MessageBubbleTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mHelper.init(context, attrs, R.attr.messageBubbleViewStyle, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public MessageBubbleTextView(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        mHelper.init(context, attrs, R.attr.messageBubbleViewStyle, defStyleRes);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(mHelper.getWidthMeasureSpec(widthMeasureSpec), heightMeasureSpec);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mHelper.onAttachedToWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mHelper.onDetachedFromWindow();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * @return Params to precompute text of this view with, must be called on UI thread
+     */
+    @NonNull
+    public PrecomputedTextCompat.Params getTextMetricsParams() {
+        return TextViewCompat.getTextMetricsParams(this);
+    }
+
+    /**
+     * Width text will be laid out at, with bubble (caret included) padding and
+     * {@link #getWrapContentMaxWidthPercent()} taken into account
+     *
+     * @param parentWidth Width available to this bubble in its parent
+     */
+    @Px
+    public int getTextLayoutWidth(@Px int parentWidth) {
+        final int widthSpec = mHelper.getWidthMeasureSpec(MeasureSpec.makeMeasureSpec(parentWidth,
+                MeasureSpec.AT_MOST));
+        return Math.max(0, MeasureSpec.getSize(widthSpec) - getCompoundPaddingLeft()
+                - getCompoundPaddingRight());
+    }
+
+    /**
+     * Sets text measured off the UI thread, params must match {@link #getTextMetricsParams()}
+     */
+    public void setPrecomputedText(@NonNull PrecomputedTextCompat text) {
+        TextViewCompat.setPrecomputedText(this, text);
+    }
+
+    @SuppressWarnings("unused")
+    public void setBubbleColorFilter(ColorFilter cf) {
+        mHelper.getDrawable().setColorFilter(cf);
+    }
+
+    @SuppressWarnings("unused")
+    public ColorFilter getBubbleColorFilter() {
+        return mHelper.getDrawable().getColorFilter();
+    }
+
+    @SuppressWarnings("unused")
+    public void clearBubbleColorFilter() {
+        mHelper.getDrawable().clearColorFilter();
+    }
+
+    @SuppressWarnings("unused")
+    public void setBubbleColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setColor(color);
+    }
+
+    @Nullable
+    @SuppressWarnings("unused")
+    public ColorStateList getBubbleColor() {
+        return mHelper.getDrawable().getColor();
+    }
+
+    /**
+     * Sets width of border stroked inside bubble outline, see
+     * {@link BubbleDrawable#setBorderWidth(int)}
+     */
+    public void setBubbleBorderWidth(@Px int width) {
+        mHelper.getDrawable().setBorderWidth(width);
+    }
+
+    @Px
+    public int getBubbleBorderWidth() {
+        return mHelper.getDrawable().getBorderWidth();
+    }
+
+    public void setBubbleBorderColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setBorderColor(color);
+    }
+
+    @Nullable
+    public ColorStateList getBubbleBorderColor() {
+        return mHelper.getDrawable().getBorderColor();
+    }
+
+    /**
+     * @see MessageBubbleView#setBubbleRippleColor(ColorStateList)
+     */
+    public void setBubbleRippleColor(@Nullable ColorStateList color) {
+        mHelper.getDrawable().setRippleColor(color);
+    }
+
+    @Nullable
+    public ColorStateList getBubbleRippleColor() {
+        return mHelper.getDrawable().getRippleColor();
+    }
+
+    /**
+     * @see MessageBubbleView#setBubbleGradient(BubbleGradient)
+     */
+    public void setBubbleGradient(@Nullable BubbleGradient gradient) {
+        mHelper.setGradient(gradient);
+    }
+
+    @Nullable
+    public BubbleGradient getBubbleGradient() {
+        return mHelper.getDrawable().getGradient();
+    }
+
+    @MessageBubbleView.CaretPosition
+    @SuppressWarnings("unused")
+    public int getCaretPosition() {
+        return mHelper.getDrawable().getCaretPosition();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCaretPosition(@MessageBubbleView.CaretPosition int position) {
+        mHelper.setCaretPosition(position);
+    }
+
+    @SuppressWarnings("unused")
+    public float getCenterCaretOffset() {
+        return mHelper.getDrawable().getCenterCaretOffset();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCenterCaretOffset(float offset) {
+        mHelper.setCenterCaretOffset(offset);
+    }
+
+    @SuppressWarnings("unused")
+    public float getCenterCaretAbsOffset() {
+        return mHelper.getDrawable().getCenterCaretAbsOffset();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCenterCaretAbsOffset(float offset) {
+        mHelper.setCenterCaretAbsOffset(offset);
+    }
+
+    @SuppressWarnings("unused")
+    public void setCaretSize(@Px int width, @Px int height) {
+        mHelper.setCaretSize(width, height);
+    }
+
+    /**
+     * @see MessageBubbleView#setCaretShape(CaretShape)
+     */
+    public void setCaretShape(@NonNull CaretShape shape) {
+        mHelper.setCaretShape(shape);
+    }
+
+    @NonNull
+    public CaretShape getCaretShape() {
+        return mHelper.getDrawable().getCaretShape();
+    }
+
+    @SuppressWarnings("unused")
+    public void setCornerRadius(@Dimension float radius) {
+        mHelper.setCornerRadius(radius);
+    }
+
+    @Dimension
+    @SuppressWarnings("unused")
+    public float getCornerRadius() {
+        return mHelper.getDrawable().getCornerRadius();
+    }
+
+    /**
+     * @see MessageBubbleView#setCornerRadii(float, float, float, float)
+     */
+    public void setCornerRadii(@Dimension float topStart, @Dimension float topEnd,
+                               @Dimension float bottomEnd, @Dimension float bottomStart) {
+        mHelper.setCornerRadii(topStart, topEnd, bottomEnd, bottomStart);
+    }
+
+    /**
+     * @return Radii in top start, top end, bottom end, bottom start order, or {@code null} if
+     * all corners use {@link #getCornerRadius()}
+     */
+    @Nullable
+    public float[] getCornerRadii() {
+        return mHelper.getDrawable().getCornerRadii();
+    }
+
+    @SuppressWarnings("unused")
+    public void setOutlineEnabled(boolean enabled) {
+        mHelper.getDrawable().setOutlineEnabled(enabled);
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isOutlineEnabled() {
+        return mHelper.getDrawable().isOutlineEnabled();
+    }
+
+    public void setRenderMode(@MessageBubbleView.RenderMode int mode) {
+        mHelper.getDrawable().setRenderMode(mode);
+    }
+
+    @MessageBubbleView.RenderMode
+    public int getRenderMode() {
+        return mHelper.getDrawable().getRenderMode();
+    }
+
+    public void setWrapContentMaxWidthPercent(@FloatRange(from = 0, to = 1) float percent) {
+        mHelper.setWrapContentMaxWidthPercent(percent);
+    }
+
+    public float getWrapContentMaxWidthPercent() {
+        return mHelper.getWrapContentMaxWidthPercent();
+    }
+
+    /**
+     * @see MessageBubbleView#applyStyle(BubbleStyle)
+     */
+    public void applyStyle(@NonNull BubbleStyle style) {
+        mHelper.applyStyle(style);
+    }
+
+    @NonNull
+    public BubbleStyle getStyle() {
+        return mHelper.getStyle();
+    }
+
+}
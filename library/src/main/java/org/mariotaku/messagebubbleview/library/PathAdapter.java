@@ -0,0 +1,53 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Path;
+
+import org.mariotaku.messagebubbleview.geometry.ShapeBuffer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Replays {@link ShapeBuffer} commands into {@link Path}
+ */
+final class PathAdapter {
+
+    private PathAdapter() {
+    }
+
+    /**
+     * Replaces content of {@code path} with shape recorded in {@code buffer}
+     */
+    static void replay(@NonNull ShapeBuffer buffer, @NonNull Path path) {
+        path.reset();
+        final int[] ops = buffer.getOps();
+        final float[] c = buffer.getCoords();
+        for (int i = 0, n = buffer.getOpCount(), j = 0; i < n; i++) {
+            switch (ops[i]) {
+                case ShapeBuffer.OP_MOVE: {
+                    path.moveTo(c[j], c[j + 1]);
+                    j += 2;
+                    break;
+                }
+                case ShapeBuffer.OP_LINE: {
+                    path.lineTo(c[j], c[j + 1]);
+                    j += 2;
+                    break;
+                }
+                case ShapeBuffer.OP_QUAD: {
+                    path.quadTo(c[j], c[j + 1], c[j + 2], c[j + 3]);
+                    j += 4;
+                    break;
+                }
+                case ShapeBuffer.OP_CUBIC: {
+                    path.cubicTo(c[j], c[j + 1], c[j + 2], c[j + 3], c[j + 4], c[j + 5]);
+                    j += 6;
+                    break;
+                }
+                case ShapeBuffer.OP_CLOSE: {
+                    path.close();
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.widget.TextView;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+import androidx.core.util.ObjectsCompat;
+import androidx.core.widget.TextViewCompat;
+
+/**
+ * Widest line of wrapped text, cached per text and width constraint so shrink-wrapped bubbles
+ * only need an extra measure pass the first time a text is laid out at a given width
+ */
+final class ShrinkWrapCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private static final LinkedHashMap<Key, Integer> sWidths = new LinkedHashMap<>(16, 0.75f, true);
+
+    private ShrinkWrapCache() {
+    }
+
+    /**
+     * @return Cached width of text view, or {@code -1} if unknown
+     */
+    static synchronized int get(@NonNull Key key) {
+        final Integer width = sWidths.get(key);
+        return width != null ? width : -1;
+    }
+
+    static synchronized void put(@NonNull Key key, int width) {
+        sWidths.put(key.copy(), width);
+        final Iterator<Key> iterator = sWidths.keySet().iterator();
+        int size = sWidths.size();
+        while (size > MAX_SIZE && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            size--;
+        }
+    }
+
+    /**
+     * @return Width {@code view} needs to fit its widest laid out line, or {@code -1} if it
+     * can't get narrower than it is now
+     */
+    static int computeWidth(@NonNull TextView view) {
+        final Layout layout = view.getLayout();
+        if (layout == null || layout.getLineCount() < 2) return -1;
+        float maxLineWidth = 0;
+        for (int i = 0, lines = layout.getLineCount(); i < lines; i++) {
+            maxLineWidth = Math.max(maxLineWidth, layout.getLineMax(i));
+        }
+        final int width = (int) Math.ceil(maxLineWidth) + view.getCompoundPaddingLeft()
+                + view.getCompoundPaddingRight();
+        if (width >= view.getMeasuredWidth()) return -1;
+        return width;
+    }
+
+    /**
+     * Text and every parameter changing how it breaks into lines. Only plain, untransformed
+     * text is cached, entries hold a {@link String} copy so later edits of a view's text can't
+     * corrupt the map.
+     */
+    static final class Key {
+
+        CharSequence text;
+        int textHash;
+        int availableWidth;
+        int compoundPadding;
+        int maxLines;
+        int minWidth;
+        int maxWidth;
+        int minEms;
+        int maxEms;
+        int breakStrategy;
+        int hyphenationFrequency;
+        float textSize;
+        float textScaleX;
+        float letterSpacing;
+        Typeface typeface;
+        Locale textLocale;
+        String fontFeatureSettings;
+
+        /**
+         * @return {@code false} if text of {@code view} can't be cached, key is left cleared
+         */
+        boolean set(@NonNull TextView view, int availableWidth) {
+            final CharSequence text = view.getText();
+            // Spans change rendering and may hold a Context, don't keep them in a static map.
+            // Transformations (all caps, password, single line) change laid out text, and
+            // width limits can't be read before API 16.
+            if (text instanceof Spanned || view.getTransformationMethod() != null
+                    || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                clear();
+                return false;
+            }
+            final TextPaint paint = view.getPaint();
+            this.text = text;
+            this.textHash = hashText(text);
+            this.availableWidth = availableWidth;
+            this.compoundPadding = view.getCompoundPaddingLeft() + view.getCompoundPaddingRight();
+            this.maxLines = TextViewCompat.getMaxLines(view);
+            this.minWidth = view.getMinWidth();
+            this.maxWidth = view.getMaxWidth();
+            this.minEms = view.getMinEms();
+            this.maxEms = view.getMaxEms();
+            this.textSize = paint.getTextSize();
+            this.textScaleX = paint.getTextScaleX();
+            this.typeface = paint.getTypeface();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                this.textLocale = paint.getTextLocale();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                this.letterSpacing = paint.getLetterSpacing();
+                this.fontFeatureSettings = paint.getFontFeatureSettings();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                this.breakStrategy = view.getBreakStrategy();
+                this.hyphenationFrequency = view.getHyphenationFrequency();
+            }
+            return true;
+        }
+
+        /**
+         * Drops text reference held by lookup key
+         */
+        void clear() {
+            text = null;
+            typeface = null;
+            textLocale = null;
+            fontFeatureSettings = null;
+        }
+
+        Key copy() {
+            final Key key = new Key();
+            key.text = text != null ? text.toString() : null;
+            key.textHash = textHash;
+            key.availableWidth = availableWidth;
+            key.compoundPadding = compoundPadding;
+            key.maxLines = maxLines;
+            key.minWidth = minWidth;
+            key.maxWidth = maxWidth;
+            key.minEms = minEms;
+            key.maxEms = maxEms;
+            key.breakStrategy = breakStrategy;
+            key.hyphenationFrequency = hyphenationFrequency;
+            key.textSize = textSize;
+            key.textScaleX = textScaleX;
+            key.letterSpacing = letterSpacing;
+            key.typeface = typeface;
+            key.textLocale = textLocale;
+            key.fontFeatureSettings = fontFeatureSettings;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return textHash == key.textHash
+                    && availableWidth == key.availableWidth
+                    && compoundPadding == key.compoundPadding
+                    && maxLines == key.maxLines
+                    && minWidth == key.minWidth
+                    && maxWidth == key.maxWidth
+                    && minEms == key.minEms
+                    && maxEms == key.maxEms
+                    && breakStrategy == key.breakStrategy
+                    && hyphenationFrequency == key.hyphenationFrequency
+                    && Float.compare(key.textSize, textSize) == 0
+                    && Float.compare(key.textScaleX, textScaleX) == 0
+                    && Float.compare(key.letterSpacing, letterSpacing) == 0
+                    && (typeface != null ? typeface.equals(key.typeface) : key.typeface == null)
+                    && ObjectsCompat.equals(textLocale, key.textLocale)
+                    && TextUtils.equals(fontFeatureSettings, key.fontFeatureSettings)
+                    // Compares characters, lookup keys may hold other CharSequences than String
+                    && TextUtils.equals(text, key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = textHash;
+            result = 31 * result + availableWidth;
+            result = 31 * result + compoundPadding;
+            result = 31 * result + maxLines;
+            result = 31 * result + minWidth;
+            result = 31 * result + maxWidth;
+            result = 31 * result + minEms;
+            result = 31 * result + maxEms;
+            result = 31 * result + breakStrategy;
+            result = 31 * result + hyphenationFrequency;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + (textLocale != null ? textLocale.hashCode() : 0);
+            result = 31 * result + (fontFeatureSettings != null ? fontFeatureSettings.hashCode() : 0);
+            return result;
+        }
+
+        /**
+         * Same as {@link String#hashCode()}, without converting text to a String
+         */
+        private static int hashText(CharSequence text) {
+            if (text instanceof String) return text.hashCode();
+            int hash = 0;
+            for (int i = 0, j = text.length(); i < j; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.mariotaku.messagebubbleview.library;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures heap allocated by current thread, needs a HotSpot based JVM
+ */
+final class Allocations {
+
+    private static final int WARMUP_ITERATIONS = 100;
+    static final int ITERATIONS = 1000;
+
+    private Allocations() {
+    }
+
+    /**
+     * @return Bytes allocated by {@code ITERATIONS} runs of {@code operation}, after a warmup
+     * so lazily built state is excluded
+     */
+    static long measure(Runnable operation) {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation counting unsupported", bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("Allocation counting unsupported", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    static void assertNoAllocation(String name, Runnable operation) {
+        final long bytes = measure(operation);
+        // Less than a byte per run is bookkeeping of the measurement itself
+        assertTrue(name + " allocated " + bytes + " bytes in " + ITERATIONS + " runs",
+                bytes < ITERATIONS);
+    }
+}
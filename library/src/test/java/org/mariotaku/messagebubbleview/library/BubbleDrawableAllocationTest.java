@@ -0,0 +1,155 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mariotaku.messagebubbleview.library.Allocations.assertNoAllocation;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+
+/**
+ * {@link BubbleDrawable#draw}, {@link BubbleDrawable#onBoundsChange} and
+ * {@link BubbleDrawable#onStateChange} run for every bubble on screen and must not allocate once
+ * shapes are cached
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleDrawableAllocationTest {
+
+    private static final int[] STATE_NONE = new int[0];
+    private static final int[] STATE_PRESSED = {android.R.attr.state_pressed};
+
+    private BubbleDrawable mDrawable;
+    private CountingCanvas mCanvas;
+
+    @Before
+    public void setUp() {
+        BubblePathCache.clear();
+        BubbleAtlas.clear();
+        mDrawable = new BubbleDrawable();
+        mDrawable.setColor(new ColorStateList(new int[][]{STATE_PRESSED, STATE_NONE},
+                new int[]{Color.RED, Color.BLUE}));
+        mDrawable.setCornerRadius(16);
+        mDrawable.setCaretSize(24, 18);
+        mDrawable.setCaretPosition(BOTTOM | RIGHT);
+        mDrawable.setBounds(0, 0, 320, 120);
+        mCanvas = new CountingCanvas();
+    }
+
+    @Test
+    public void drawPath() {
+        mDrawable.setRenderMode(MessageBubbleView.RENDER_MODE_PATH);
+        assertNoAllocation("draw", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.draw(mCanvas);
+            }
+        });
+        assertTrue(mCanvas.drawCount > 0);
+    }
+
+    @Test
+    public void drawPathWithOffset() {
+        mDrawable.setBounds(10, 20, 330, 140);
+        assertNoAllocation("draw with offset", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+
+    @Test
+    public void drawBorder() {
+        mDrawable.setBorderWidth(2);
+        mDrawable.setBorderColor(ColorStateList.valueOf(Color.WHITE));
+        assertNoAllocation("draw border", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+
+    @Test
+    public void drawRoundRect() {
+        mDrawable.setRenderMode(MessageBubbleView.RENDER_MODE_ROUND_RECT);
+        assertNoAllocation("draw round rect", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+
+    @Test
+    public void drawNineSlice() {
+        mDrawable.setRenderMode(MessageBubbleView.RENDER_MODE_NINE_SLICE);
+        assertNoAllocation("draw nine slice", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+
+    @Test
+    public void boundsChange() {
+        final int missCount = BubblePathCache.getMissCount();
+        assertNoAllocation("onBoundsChange", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.setBounds(0, 0, 320, 120);
+                mDrawable.draw(mCanvas);
+                mDrawable.setBounds(0, 0, 200, 80);
+                mDrawable.draw(mCanvas);
+            }
+        });
+        // Both sizes came from cache after their first draw
+        assertEquals(missCount + 2, BubblePathCache.getMissCount());
+    }
+
+    @Test
+    public void stateChange() {
+        assertNoAllocation("onStateChange", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.setState(STATE_PRESSED);
+                mDrawable.draw(mCanvas);
+                mDrawable.setState(STATE_NONE);
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+
+    @Test
+    public void bindStyle() {
+        final BubbleStyle tail = new BubbleStyle.Builder(ApplicationProvider.getApplicationContext())
+                .setCaretPosition(BOTTOM | RIGHT)
+                .setCaretSize(24, 18)
+                .setCaretShape(CaretShape.CURVED)
+                .setCornerRadius(16)
+                .build();
+        final BubbleStyle plain = tail.buildUpon().setCaretShape(CaretShape.TRIANGLE).build();
+        assertNoAllocation("setStyle", new Runnable() {
+            @Override
+            public void run() {
+                mDrawable.setStyle(tail);
+                mDrawable.draw(mCanvas);
+                mDrawable.setStyle(plain);
+                mDrawable.draw(mCanvas);
+            }
+        });
+    }
+}
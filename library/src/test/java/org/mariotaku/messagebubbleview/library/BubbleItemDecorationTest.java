@@ -0,0 +1,112 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleItemDecorationTest {
+
+    private static final int ITEM_COUNT = 5;
+
+    private RecyclerView mRecyclerView;
+    private BubbleItemDecoration mDecoration;
+    private int mItemCount = ITEM_COUNT;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final BubbleStyle style = TestStyles.outgoing(context);
+        mDecoration = new BubbleItemDecoration(new BubbleItemDecoration.StyleCallback() {
+            @Override
+            public BubbleStyle getBubbleStyle(int position) {
+                // Odd rows are e.g. date headers
+                return position % 2 == 0 ? style : null;
+            }
+        });
+        mRecyclerView = new RecyclerView(context);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(context));
+        mRecyclerView.addItemDecoration(mDecoration);
+        mRecyclerView.setAdapter(new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                final View view = new View(parent.getContext());
+                view.setLayoutParams(new RecyclerView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, 40));
+                return new RecyclerView.ViewHolder(view) {
+                };
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return mItemCount;
+            }
+        });
+        layout();
+    }
+
+    @Test
+    public void offsetsItemsByCaretPadding() {
+        final RecyclerView.State state = new RecyclerView.State();
+        final Rect offsets = new Rect();
+        mDecoration.getItemOffsets(offsets, mRecyclerView.getChildAt(0), mRecyclerView, state);
+        assertEquals(new Rect(0, 0, TestStyles.CARET_WIDTH, 0), offsets);
+        mDecoration.getItemOffsets(offsets, mRecyclerView.getChildAt(1), mRecyclerView, state);
+        assertEquals(new Rect(), offsets);
+    }
+
+    @Test
+    public void drawsBubblesOnlyBehindStyledItems() {
+        assertEquals(ITEM_COUNT, mRecyclerView.getChildCount());
+        final CountingCanvas canvas = new CountingCanvas();
+        mDecoration.onDraw(canvas, mRecyclerView, new RecyclerView.State());
+        assertEquals(3, canvas.drawCount);
+    }
+
+    @Test
+    public void skipsBubblesOfTransparentItems() {
+        mRecyclerView.getChildAt(0).setAlpha(0);
+        final CountingCanvas canvas = new CountingCanvas();
+        mDecoration.onDraw(canvas, mRecyclerView, new RecyclerView.State());
+        assertEquals(2, canvas.drawCount);
+    }
+
+    @Test
+    public void removedItemKeepsItsBubbleWhileAnimatingOut() {
+        mDecoration.onDraw(new CountingCanvas(), mRecyclerView, new RecyclerView.State());
+        // First row is styled, its neighbour isn't
+        mItemCount--;
+        mRecyclerView.getAdapter().notifyItemRemoved(0);
+        layout();
+        // Disappearing row is still a child until its animation ends
+        assertEquals(ITEM_COUNT, mRecyclerView.getChildCount());
+        final CountingCanvas canvas = new CountingCanvas();
+        mDecoration.onDraw(canvas, mRecyclerView, new RecyclerView.State());
+        // Removed row, plus two styled rows of remaining four
+        assertEquals(3, canvas.drawCount);
+    }
+
+    private void layout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(400, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, 320, 400);
+    }
+}
@@ -0,0 +1,100 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleMetricsTest {
+
+    private static final int[] STATE_NONE = new int[0];
+    private static final int[] STATE_PRESSED = {android.R.attr.state_pressed};
+
+    private BubbleDrawable mDrawable;
+    private CountingCanvas mCanvas;
+
+    @Before
+    public void setUp() {
+        BubblePathCache.clear();
+        BubbleMetrics.reset();
+        BubbleMetrics.setEnabled(true);
+        mDrawable = new BubbleDrawable();
+        mDrawable.setColor(new ColorStateList(new int[][]{STATE_PRESSED, STATE_NONE},
+                new int[]{Color.RED, Color.BLUE}));
+        mDrawable.setCaretPosition(BOTTOM | RIGHT);
+        mDrawable.setBounds(0, 0, 320, 120);
+        mCanvas = new CountingCanvas();
+    }
+
+    @After
+    public void tearDown() {
+        BubbleMetrics.setEnabled(false);
+        BubbleMetrics.setListener(null);
+        BubbleMetrics.reset();
+    }
+
+    @Test
+    public void recordsDrawsAndPathBuilds() {
+        final long[] listenerBuilds = new long[1];
+        BubbleMetrics.setListener(new BubbleMetrics.Listener() {
+            @Override
+            public void onPathBuilt(long nanos) {
+                listenerBuilds[0]++;
+            }
+        });
+        mDrawable.draw(mCanvas);
+        mDrawable.draw(mCanvas);
+        mDrawable.setBounds(0, 0, 200, 80);
+        mDrawable.draw(mCanvas);
+        mDrawable.setBounds(0, 0, 320, 120);
+        mDrawable.draw(mCanvas);
+        assertEquals(4, BubbleMetrics.getDrawCount());
+        assertEquals(2, BubbleMetrics.getPathBuildCount());
+        assertEquals(1, BubbleMetrics.getPathCacheHitCount());
+        assertTrue(BubbleMetrics.getPathBuildNanos() > 0);
+        assertEquals(2, listenerBuilds[0]);
+    }
+
+    @Test
+    public void recordsOnlyInvalidatingStateChanges() {
+        mDrawable.setState(STATE_PRESSED);
+        mDrawable.setState(new int[]{android.R.attr.state_pressed, android.R.attr.state_focused});
+        mDrawable.setState(STATE_NONE);
+        assertEquals(2, BubbleMetrics.getStateInvalidationCount());
+    }
+
+    @Test
+    public void recordsRelayouts() {
+        final MessageBubbleView view = new MessageBubbleView(ApplicationProvider.getApplicationContext());
+        BubbleMetrics.reset();
+        view.setCaretPosition(BOTTOM | RIGHT);
+        view.setCaretSize(24, 18);
+        view.setCaretSize(24, 18);
+        view.setCornerRadius(8);
+        assertEquals(2, BubbleMetrics.getRelayoutCount());
+    }
+
+    @Test
+    public void disabledRecordsNothing() {
+        BubbleMetrics.setEnabled(false);
+        mDrawable.draw(mCanvas);
+        mDrawable.setState(STATE_PRESSED);
+        assertEquals(0, BubbleMetrics.getDrawCount());
+        assertEquals(0, BubbleMetrics.getPathBuildCount());
+        assertEquals(0, BubbleMetrics.getStateInvalidationCount());
+    }
+}
@@ -0,0 +1,79 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.START;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleRendererTest {
+
+    private BubbleStyle mStyle;
+    private BubbleRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        BubbleBitmapPool.clear();
+        mStyle = TestStyles.outgoing(ApplicationProvider.getApplicationContext());
+        mRenderer = new BubbleRenderer();
+    }
+
+    @Test
+    public void bubbleWrapsContent() {
+        final Rect content = new Rect();
+        final CountingCanvas canvas = new CountingCanvas();
+        mRenderer.drawAroundContent(canvas, mStyle, 10, 20, 200, 100, content);
+        assertEquals(new Rect(10, 20, 210, 120), content);
+        assertEquals(1, canvas.drawCount);
+        final Bitmap bitmap = mRenderer.render(mStyle, 200, 100);
+        assertEquals(200 + TestStyles.CARET_WIDTH, bitmap.getWidth());
+        assertEquals(100, bitmap.getHeight());
+    }
+
+    @Test
+    public void batchFitsAllBubbles() {
+        final BubbleStyle incoming = mStyle.buildUpon().setCaretPosition(BOTTOM | START).build();
+        final BubbleRenderer.Batch batch = new BubbleRenderer.Batch()
+                .add(incoming, 0, 0, 160, 40)
+                .add(mStyle, 40, 70, 200, 40);
+        final Bitmap bitmap = mRenderer.render(batch);
+        assertEquals(40 + 200 + TestStyles.CARET_WIDTH, bitmap.getWidth());
+        assertEquals(110, bitmap.getHeight());
+    }
+
+    @Test
+    public void releasedBitmapIsReused() {
+        final Bitmap bitmap = mRenderer.render(mStyle, 200, 100);
+        BubbleBitmapPool.release(bitmap);
+        assertEquals(1, BubbleBitmapPool.size());
+        assertSame(bitmap, mRenderer.render(mStyle, 200, 100));
+        assertEquals(0, BubbleBitmapPool.size());
+    }
+
+    @Test
+    public void pressedRippleIsStaticOverlay() {
+        final BubbleStyle style = mStyle.buildUpon()
+                .setRippleColor(ColorStateList.valueOf(0x40000000))
+                .build();
+        final CountingCanvas canvas = new CountingCanvas();
+        mRenderer.draw(canvas, style, 0, 0, 200, 100);
+        assertEquals(1, canvas.drawCount);
+        mRenderer.setState(new int[]{android.R.attr.state_pressed});
+        mRenderer.draw(canvas, style, 0, 0, 200, 100);
+        // Fill and overlay, no ripple animator started
+        assertEquals(3, canvas.drawCount);
+    }
+}
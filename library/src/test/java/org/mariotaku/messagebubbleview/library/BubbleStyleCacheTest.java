@@ -0,0 +1,73 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.RIGHT;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleStyleCacheTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        BubbleStyleCache.clear();
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void sameThemeResolvesOnce() {
+        final int misses = BubbleStyleCache.getMissCount();
+        final int hits = BubbleStyleCache.getHitCount();
+        final BubbleStyleCache.ResolvedStyle first = BubbleStyleCache.obtain(mContext, null,
+                R.attr.messageBubbleViewStyle, 0);
+        final BubbleStyleCache.ResolvedStyle second = BubbleStyleCache.obtain(mContext, null,
+                R.attr.messageBubbleViewStyle, 0);
+        assertSame(first, second);
+        assertEquals(misses + 1, BubbleStyleCache.getMissCount());
+        assertEquals(hits + 1, BubbleStyleCache.getHitCount());
+    }
+
+    @Test
+    public void configurationChangeResolvesAgain() {
+        final BubbleStyleCache.ResolvedStyle day = BubbleStyleCache.obtain(mContext, null,
+                R.attr.messageBubbleViewStyle, 0);
+        // Same theme, as in an activity handling uiMode changes itself
+        RuntimeEnvironment.setQualifiers("+night");
+        final BubbleStyleCache.ResolvedStyle night = BubbleStyleCache.obtain(mContext, null,
+                R.attr.messageBubbleViewStyle, 0);
+        assertNotSame(day, night);
+        assertSame(night, BubbleStyleCache.obtain(mContext, null, R.attr.messageBubbleViewStyle, 0));
+    }
+
+    @Test
+    public void bubbleAttributesBypassCache() {
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.caretPosition, "bottom|right")
+                .build();
+        final int misses = BubbleStyleCache.getMissCount();
+        final int hits = BubbleStyleCache.getHitCount();
+        final BubbleStyleCache.ResolvedStyle style = BubbleStyleCache.obtain(mContext, attrs,
+                R.attr.messageBubbleViewStyle, 0);
+        BubbleStyleCache.obtain(mContext, attrs, R.attr.messageBubbleViewStyle, 0);
+        assertEquals(BOTTOM | RIGHT, style.style.getCaretPosition());
+        assertEquals(misses, BubbleStyleCache.getMissCount());
+        assertEquals(hits, BubbleStyleCache.getHitCount());
+    }
+}
@@ -0,0 +1,84 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.START;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BubbleTranscriptViewTest {
+
+    private static final int MESSAGE_COUNT = 10000;
+    private static final int MIN_MESSAGE_HEIGHT = 20;
+
+    private BubbleTranscriptView mView;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final BubbleStyle outgoing = TestStyles.outgoing(context);
+        final BubbleStyle incoming = outgoing.buildUpon().setCaretPosition(BOTTOM | START).build();
+        final TextPaint paint = new TextPaint();
+        final List<BubbleTranscriptView.Message> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            final Layout layout = new StaticLayout("Message " + i, paint, 200,
+                    Layout.Alignment.ALIGN_NORMAL, 1, 0, false);
+            final boolean end = i % 2 == 0;
+            messages.add(new BubbleTranscriptView.Message(layout, end ? outgoing : incoming, end));
+        }
+        mView = new BubbleTranscriptView(context);
+        mView.setBubblePadding(8, MIN_MESSAGE_HEIGHT / 2);
+        mView.setMessages(messages);
+        mView.measure(View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.EXACTLY));
+        mView.layout(0, 0, 320, 200);
+    }
+
+    @Test
+    public void drawsOnlyVisibleMessages() {
+        final CountingCanvas canvas = new CountingCanvas();
+        mView.onDraw(canvas);
+        assertTrue(canvas.drawCount > 0);
+        assertTrue(canvas.drawCount <= 200 / MIN_MESSAGE_HEIGHT + 1);
+    }
+
+    @Test
+    public void scrollsToMessage() {
+        mView.scrollToMessage(MESSAGE_COUNT / 2);
+        assertEquals(MESSAGE_COUNT / 2, mView.getMessageAt(0));
+        final CountingCanvas canvas = new CountingCanvas();
+        mView.onDraw(canvas);
+        assertTrue(canvas.drawCount <= 200 / MIN_MESSAGE_HEIGHT + 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void scrollToMessagePastEndThrows() {
+        mView.scrollToMessage(MESSAGE_COUNT);
+    }
+
+    @Test
+    public void clampsScrollToContent() {
+        mView.scrollTo(0, Integer.MAX_VALUE);
+        assertEquals(MESSAGE_COUNT - 1, mView.getMessageAt(199));
+        mView.scrollTo(0, -100);
+        assertEquals(0, mView.getScrollY());
+    }
+}
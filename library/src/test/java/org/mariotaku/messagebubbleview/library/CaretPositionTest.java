@@ -0,0 +1,171 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.Gravity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.view.ViewCompat;
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs for every {@code caretPosition} flag declared in {@code attrs.xml}, a flag added there
+ * without an expected padding side here fails
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CaretPositionTest {
+
+    private static final int CARET_WIDTH = 12, CARET_HEIGHT = 9;
+
+    // Padded side in LTR and RTL
+    private static final Map<String, int[]> EXPECTED_SIDES = new HashMap<>();
+
+    static {
+        expect("none", Gravity.NO_GRAVITY, Gravity.NO_GRAVITY);
+        expect("top", Gravity.NO_GRAVITY, Gravity.NO_GRAVITY);
+        expect("bottom", Gravity.NO_GRAVITY, Gravity.NO_GRAVITY);
+        expect("left", Gravity.LEFT, Gravity.LEFT);
+        expect("right", Gravity.RIGHT, Gravity.RIGHT);
+        expect("start", Gravity.LEFT, Gravity.RIGHT);
+        expect("end", Gravity.RIGHT, Gravity.LEFT);
+        expect("vertical", Gravity.NO_GRAVITY, Gravity.NO_GRAVITY);
+        expect("topLeft", Gravity.LEFT, Gravity.LEFT);
+        expect("topRight", Gravity.RIGHT, Gravity.RIGHT);
+        expect("topCenter", Gravity.TOP, Gravity.TOP);
+        expect("bottomLeft", Gravity.LEFT, Gravity.LEFT);
+        expect("bottomRight", Gravity.RIGHT, Gravity.RIGHT);
+        expect("bottomCenter", Gravity.BOTTOM, Gravity.BOTTOM);
+        expect("centerLeft", Gravity.LEFT, Gravity.LEFT);
+        expect("centerRight", Gravity.RIGHT, Gravity.RIGHT);
+        expect("centerStart", Gravity.LEFT, Gravity.RIGHT);
+        expect("centerEnd", Gravity.RIGHT, Gravity.LEFT);
+        expect("topStart", Gravity.LEFT, Gravity.RIGHT);
+        expect("topEnd", Gravity.RIGHT, Gravity.LEFT);
+        expect("bottomStart", Gravity.LEFT, Gravity.RIGHT);
+        expect("bottomEnd", Gravity.RIGHT, Gravity.LEFT);
+    }
+
+    private final String mName;
+    private final int mValue;
+
+    public CaretPositionTest(String name, int value) {
+        mName = name;
+        mValue = value;
+    }
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0}")
+    public static List<Object[]> flags() throws Exception {
+        // Unit tests run from module directory
+        final File attrs = new File("src/main/res/values/attrs.xml");
+        final NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(attrs).getElementsByTagName("attr");
+        final List<Object[]> flags = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            final Element attr = (Element) nodes.item(i);
+            if (!"caretPosition".equals(attr.getAttribute("name"))) continue;
+            final NodeList flagNodes = attr.getElementsByTagName("flag");
+            for (int j = 0; j < flagNodes.getLength(); j++) {
+                final Element flag = (Element) flagNodes.item(j);
+                flags.add(new Object[]{flag.getAttribute("name"),
+                        Integer.decode(flag.getAttribute("value"))});
+            }
+        }
+        assertTrue(flags.size() > 0);
+        return flags;
+    }
+
+    @Test
+    public void inflates() {
+        final MessageBubbleView view = inflate();
+        assertEquals(mValue, view.getCaretPosition());
+        final Rect padding = new Rect(view.getPaddingLeft(), view.getPaddingTop(),
+                view.getPaddingRight(), view.getPaddingBottom());
+        assertEquals(getExpectedPadding(getExpectedSides()[0]), padding);
+    }
+
+    @Test
+    public void resolvesRtl() {
+        final BubbleDrawable drawable = (BubbleDrawable) inflate().getBackground();
+        DrawableCompat.setLayoutDirection(drawable, ViewCompat.LAYOUT_DIRECTION_RTL);
+        final Rect padding = new Rect();
+        drawable.getPadding(padding);
+        assertEquals(getExpectedPadding(getExpectedSides()[1]), padding);
+        assertEquals(mValue, drawable.getCaretPosition());
+    }
+
+    @Test
+    public void drawsInEveryRenderMode() {
+        final BubbleDrawable drawable = (BubbleDrawable) inflate().getBackground();
+        drawable.setCornerRadius(8);
+        final CountingCanvas canvas = new CountingCanvas();
+        for (int direction : new int[]{ViewCompat.LAYOUT_DIRECTION_LTR, ViewCompat.LAYOUT_DIRECTION_RTL}) {
+            DrawableCompat.setLayoutDirection(drawable, direction);
+            for (int mode : new int[]{MessageBubbleView.RENDER_MODE_PATH,
+                    MessageBubbleView.RENDER_MODE_ROUND_RECT,
+                    MessageBubbleView.RENDER_MODE_NINE_SLICE}) {
+                drawable.setRenderMode(mode);
+                drawable.setBounds(0, 0, 200, 80);
+                canvas.drawCount = 0;
+                drawable.draw(canvas);
+                assertTrue("Nothing drawn in render mode " + mode, canvas.drawCount > 0);
+            }
+        }
+    }
+
+    private MessageBubbleView inflate() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.caretPosition, mName)
+                .addAttribute(R.attr.caretWidth, CARET_WIDTH + "px")
+                .addAttribute(R.attr.caretHeight, CARET_HEIGHT + "px")
+                .build();
+        return new MessageBubbleView(context, attrs);
+    }
+
+    private int[] getExpectedSides() {
+        final int[] sides = EXPECTED_SIDES.get(mName);
+        assertNotNull("No expected padding for caretPosition flag " + mName, sides);
+        return sides;
+    }
+
+    private static Rect getExpectedPadding(int side) {
+        switch (side) {
+            case Gravity.LEFT:
+                return new Rect(CARET_WIDTH, 0, 0, 0);
+            case Gravity.RIGHT:
+                return new Rect(0, 0, CARET_WIDTH, 0);
+            case Gravity.TOP:
+                return new Rect(0, CARET_HEIGHT, 0, 0);
+            case Gravity.BOTTOM:
+                return new Rect(0, 0, 0, CARET_HEIGHT);
+            default:
+                return new Rect();
+        }
+    }
+
+    private static void expect(String name, int ltrSide, int rtlSide) {
+        EXPECTED_SIDES.put(name, new int[]{ltrSide, rtlSide});
+    }
+}
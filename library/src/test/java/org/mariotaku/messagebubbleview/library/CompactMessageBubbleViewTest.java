@@ -0,0 +1,48 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CompactMessageBubbleViewTest {
+
+    private static final int WIDTH_SPEC = View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.AT_MOST);
+    private static final int HEIGHT_SPEC = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+    private CompactMessageBubbleView mView;
+    private TextView mText;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        mView = new CompactMessageBubbleView(context);
+        mText = new TextView(context);
+        mText.setText("Hi");
+        mView.addView(mText, new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT));
+    }
+
+    @Test
+    public void forceLayoutRemeasuresChildren() {
+        mView.measure(WIDTH_SPEC, HEIGHT_SPEC);
+        final int width = mView.getMeasuredWidth();
+        // Still waiting for layout, so child's request doesn't reach parent
+        mText.setText("A message long enough to be wider");
+        mView.forceLayout();
+        mView.measure(WIDTH_SPEC, HEIGHT_SPEC);
+        assertTrue(mView.getMeasuredWidth() > width);
+    }
+}
@@ -0,0 +1,54 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Canvas that only counts draw calls, so allocations measured around it come from bubble code
+ * instead of Robolectric recording canvas operations
+ */
+final class CountingCanvas extends Canvas {
+
+    int drawCount;
+
+    @Override
+    public void drawPath(@NonNull Path path, @NonNull Paint paint) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRoundRect(@NonNull RectF rect, float rx, float ry, @NonNull Paint paint) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRect(@NonNull RectF rect, @NonNull Paint paint) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawBitmap(@NonNull Bitmap bitmap, @Nullable Rect src, @NonNull RectF dst,
+                           @Nullable Paint paint) {
+        drawCount++;
+    }
+
+    @Override
+    public int save() {
+        return 1;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+}
@@ -0,0 +1,54 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.END;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.TOP;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MessageBubbleTextViewTest {
+
+    private MessageBubbleTextView mView;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.padding, "8px")
+                .addAttribute(R.attr.caretPosition, "bottomEnd")
+                .addAttribute(R.attr.caretWidth, "12px")
+                .addAttribute(R.attr.caretHeight, "9px")
+                .build();
+        mView = new MessageBubbleTextView(context, attrs);
+    }
+
+    @Test
+    public void caretPaddingIsAddedToOwnPadding() {
+        assertEquals(8, mView.getPaddingLeft());
+        assertEquals(8, mView.getPaddingTop());
+        assertEquals(20, mView.getPaddingRight());
+        assertEquals(8, mView.getPaddingBottom());
+
+        mView.setCaretSize(24, 18);
+        assertEquals(8, mView.getPaddingLeft());
+        assertEquals(32, mView.getPaddingRight());
+
+        mView.setCaretPosition(TOP | END | MessageBubbleView.VERTICAL);
+        assertEquals(26, mView.getPaddingTop());
+        assertEquals(8, mView.getPaddingRight());
+        assertEquals(8, mView.getPaddingBottom());
+    }
+}
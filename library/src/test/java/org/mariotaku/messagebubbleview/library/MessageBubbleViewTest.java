@@ -0,0 +1,291 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mariotaku.messagebubbleview.geometry.CaretShape;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.END;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.TOP;
+
+/**
+ * Counts layout requests and path builds caused by each setter, by binding styles and by
+ * drawing. Path builds are {@link BubblePathCache} lookups, done once per geometry change.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MessageBubbleViewTest {
+
+    private CountingBubbleView mView;
+    private CountingCanvas mCanvas;
+
+    @Before
+    public void setUp() {
+        BubblePathCache.clear();
+        final Context context = ApplicationProvider.getApplicationContext();
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.caretPosition, "bottomEnd")
+                .addAttribute(R.attr.caretWidth, "12px")
+                .addAttribute(R.attr.caretHeight, "9px")
+                .addAttribute(R.attr.cornerRadius, "16px")
+                .addAttribute(R.attr.bubbleColor, "#ff2196f3")
+                .addAttribute(R.attr.caretShape, "rounded")
+                .build();
+        mView = new CountingBubbleView(context, attrs);
+        mView.getBackground().setBounds(0, 0, 320, 120);
+        mCanvas = new CountingCanvas();
+        drawAndCountPathBuilds();
+        mView.requestLayoutCount = 0;
+    }
+
+    @Test
+    public void inflatedAttributes() {
+        assertEquals(BOTTOM | END, mView.getCaretPosition());
+        assertEquals(16, mView.getCornerRadius(), 0);
+        assertSame(CaretShape.ROUNDED, mView.getCaretShape());
+        final ColorStateList color = mView.getBubbleColor();
+        assertEquals(0xff2196f3, color != null ? color.getDefaultColor() : 0);
+        assertEquals(12, mView.getPaddingRight());
+        assertEquals(0, mView.getPaddingLeft());
+    }
+
+    @Test
+    public void drawReusesPath() {
+        assertEquals(0, drawAndCountPathBuilds());
+        assertEquals(0, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void colorDoesNotTouchGeometry() {
+        mView.setBubbleColor(ColorStateList.valueOf(Color.RED));
+        assertEquals(0, mView.requestLayoutCount);
+        assertEquals(0, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void borderStrokesFillPath() {
+        mView.setBubbleBorderColor(ColorStateList.valueOf(Color.WHITE));
+        mView.setBubbleBorderWidth(2);
+        assertEquals(0, mView.requestLayoutCount);
+        final int before = BubblePathCache.getHitCount() + BubblePathCache.getMissCount();
+        mCanvas.drawCount = 0;
+        mView.getBackground().draw(mCanvas);
+        mView.getBackground().draw(mCanvas);
+        // Fill and stroke per draw, from one inset path
+        assertEquals(4, mCanvas.drawCount);
+        assertEquals(1, BubblePathCache.getHitCount() + BubblePathCache.getMissCount() - before);
+    }
+
+    @Test
+    public void borderStaysInsidePointedCaret() {
+        mView.setCaretShape(CaretShape.TRIANGLE);
+        mView.setBubbleBorderColor(ColorStateList.valueOf(Color.WHITE));
+        mView.setBubbleBorderWidth(4);
+        final List<Paint> strokes = new ArrayList<>();
+        mView.getBackground().draw(new Canvas() {
+            @Override
+            public void drawPath(@NonNull Path path, @NonNull Paint paint) {
+                if (paint.getStyle() == Paint.Style.STROKE) {
+                    strokes.add(paint);
+                }
+            }
+        });
+        assertEquals(1, strokes.size());
+        // Round join ends within half stroke width of tip, which path is inset by
+        assertEquals(Paint.Join.ROUND, strokes.get(0).getStrokeJoin());
+    }
+
+    @Test
+    public void gradientScrollDoesNotTouchGeometry() {
+        final BubbleDrawable background = (BubbleDrawable) mView.getBackground();
+        mView.setBubbleGradient(new BubbleGradient(Color.BLUE, Color.RED));
+        assertEquals(0, drawAndCountPathBuilds());
+        for (int i = 0; i < 10; i++) {
+            background.setGradientSpan(-i * 10, 1920 - i * 10);
+            assertEquals(0, drawAndCountPathBuilds());
+        }
+        assertEquals(0, mView.requestLayoutCount);
+    }
+
+    @Test
+    public void caretShapeRebuildsWithoutLayout() {
+        mView.setCaretShape(CaretShape.CURVED);
+        assertEquals(0, mView.requestLayoutCount);
+        assertEquals(1, drawAndCountPathBuilds());
+        mView.setCaretShape(CaretShape.CURVED);
+        assertEquals(0, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void cornerRadiusRebuildsWithoutLayout() {
+        mView.setCornerRadius(4);
+        mView.setCornerRadii(16, 4, 4, 16);
+        assertEquals(0, mView.requestLayoutCount);
+        assertEquals(1, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void caretOffsetRebuildsWithoutLayout() {
+        mView.setCenterCaretOffset(0.2f);
+        mView.setCenterCaretAbsOffset(40);
+        assertEquals(0, mView.requestLayoutCount);
+        assertEquals(1, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void caretPositionOnSameSideDoesNotLayout() {
+        mView.setCaretPosition(TOP | END);
+        assertEquals(0, mView.requestLayoutCount);
+        assertEquals(1, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void caretSizeChangesLayout() {
+        mView.setCaretSize(24, 18);
+        assertTrue(mView.requestLayoutCount > 0);
+        assertEquals(24, mView.getPaddingRight());
+        assertEquals(1, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void bindWithSamePadding() {
+        final BubbleStyle sent = mView.getStyle();
+        final BubbleStyle grouped = sent.buildUpon().setCornerRadii(16, 4, 4, 16).build();
+        mView.applyStyle(grouped);
+        assertEquals(1, drawAndCountPathBuilds());
+        final int missCount = BubblePathCache.getMissCount();
+        // Rebinding recycled views only hits the cache
+        for (int i = 0; i < 10; i++) {
+            mView.applyStyle(sent);
+            assertEquals(1, drawAndCountPathBuilds());
+            mView.applyStyle(grouped);
+            assertEquals(1, drawAndCountPathBuilds());
+        }
+        assertEquals(missCount, BubblePathCache.getMissCount());
+        assertEquals(0, mView.requestLayoutCount);
+    }
+
+    @Test
+    public void bindWithOtherPaddingLayouts() {
+        final BubbleStyle received = mView.getStyle().buildUpon()
+                .setCaretPosition(BOTTOM | MessageBubbleView.START)
+                .build();
+        mView.applyStyle(received);
+        assertTrue(mView.requestLayoutCount > 0);
+        assertEquals(12, mView.getPaddingLeft());
+        assertEquals(0, mView.getPaddingRight());
+    }
+
+    @Test
+    public void resizeAfterAnimationUsesPathCache() {
+        final BubbleDrawable background = (BubbleDrawable) mView.getBackground();
+        for (int i = 1; i <= 5; i++) {
+            BubbleProperties.setFloat(background, BubbleProperties.CORNER_RADIUS, 16 + i);
+            assertEquals(0, drawAndCountPathBuilds());
+        }
+        background.setBounds(0, 0, 300, 120);
+        assertEquals(1, drawAndCountPathBuilds());
+        assertEquals(0, drawAndCountPathBuilds());
+    }
+
+    @Test
+    public void stateColorInvalidatesViewOnce() {
+        final BubbleDrawable background = (BubbleDrawable) mView.getBackground();
+        mView.setBubbleColor(new ColorStateList(new int[][]{{android.R.attr.state_pressed}, {}},
+                new int[]{Color.RED, Color.BLUE}));
+        mView.invalidateCount = 0;
+        mView.invalidateDrawableCount = 0;
+        // Only reported through return value of setState, which makes view invalidate itself
+        assertFalse(background.setState(new int[]{android.R.attr.state_focused}));
+        mView.setPressed(true);
+        assertEquals(Color.RED, background.getAnimatedColor());
+        assertEquals(1, mView.invalidateCount);
+        assertEquals(0, mView.invalidateDrawableCount);
+    }
+
+    @Test
+    public void cornerCaretOutlinesBody() {
+        final Outline outline = new Outline();
+        mView.getBackground().getOutline(outline);
+        final Rect rect = new Rect();
+        // Body round rect, caret at bottom end pads right side
+        assertTrue(outline.getRect(rect));
+        assertEquals(new Rect(0, 0, 320 - 12, 120), rect);
+    }
+
+    @Test
+    public void pressRippleDoesNotTouchGeometry() {
+        final BubbleDrawable background = (BubbleDrawable) mView.getBackground();
+        mView.setBubbleRippleColor(ColorStateList.valueOf(0x40000000));
+        assertTrue(background.isStateful());
+        background.draw(mCanvas);
+        final int before = BubblePathCache.getHitCount() + BubblePathCache.getMissCount();
+        mView.setPressed(true);
+        background.draw(mCanvas);
+        mView.setPressed(false);
+        background.draw(mCanvas);
+        assertEquals(before, BubblePathCache.getHitCount() + BubblePathCache.getMissCount());
+        assertEquals(0, mView.requestLayoutCount);
+    }
+
+    private int drawAndCountPathBuilds() {
+        final int before = BubblePathCache.getHitCount() + BubblePathCache.getMissCount();
+        mCanvas.drawCount = 0;
+        mView.getBackground().draw(mCanvas);
+        assertEquals(1, mCanvas.drawCount);
+        return BubblePathCache.getHitCount() + BubblePathCache.getMissCount() - before;
+    }
+
+    static class CountingBubbleView extends MessageBubbleView {
+
+        int requestLayoutCount;
+        int invalidateCount, invalidateDrawableCount;
+
+        CountingBubbleView(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        public void requestLayout() {
+            requestLayoutCount++;
+            super.requestLayout();
+        }
+
+        @Override
+        public void invalidate() {
+            invalidateCount++;
+            super.invalidate();
+        }
+
+        @Override
+        public void invalidateDrawable(@NonNull Drawable drawable) {
+            invalidateDrawableCount++;
+            super.invalidateDrawable(drawable);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.text.SpannableString;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ShrinkWrapCacheTest {
+
+    private TextView mView;
+    private ShrinkWrapCache.Key mKey;
+
+    @Before
+    public void setUp() {
+        mView = new TextView(ApplicationProvider.getApplicationContext());
+        mKey = new ShrinkWrapCache.Key();
+    }
+
+    @Test
+    public void spannedTextIsNotCached() {
+        mView.setText(new SpannableString("Spanned message"));
+        assertFalse(mKey.set(mView, 200));
+    }
+
+    @Test
+    public void transformedTextIsNotCached() {
+        mView.setText("Transformed message");
+        mView.setAllCaps(true);
+        assertFalse(mKey.set(mView, 200));
+    }
+
+    @Test
+    public void paintParametersAreKeyed() {
+        mView.setText("Keyed message");
+        assertTrue(mKey.set(mView, 200));
+        ShrinkWrapCache.put(mKey, 120);
+        assertEquals(120, ShrinkWrapCache.get(mKey));
+        mView.setTextScaleX(2);
+        mKey.set(mView, 200);
+        assertEquals(-1, ShrinkWrapCache.get(mKey));
+    }
+
+    @Test
+    public void widthLimitsAreKeyed() {
+        mView.setText("Limited message");
+        assertTrue(mKey.set(mView, 200));
+        ShrinkWrapCache.put(mKey, 120);
+        mView.setMaxWidth(100);
+        mKey.set(mView, 200);
+        assertEquals(-1, ShrinkWrapCache.get(mKey));
+    }
+}
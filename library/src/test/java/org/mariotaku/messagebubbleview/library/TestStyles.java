@@ -0,0 +1,34 @@
+package org.mariotaku.messagebubbleview.library;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.BOTTOM;
+import static org.mariotaku.messagebubbleview.library.MessageBubbleView.END;
+
+/**
+ * Bubble styles shared by renderer tests
+ */
+final class TestStyles {
+
+    /**
+     * Width of caret of {@link #outgoing(Context)}, padding right side of its bubbles
+     */
+    static final int CARET_WIDTH = 24;
+
+    private TestStyles() {
+    }
+
+    /**
+     * Outgoing message bubble, caret at bottom end
+     */
+    @NonNull
+    static BubbleStyle outgoing(@NonNull Context context) {
+        return new BubbleStyle.Builder(context)
+                .setCaretPosition(BOTTOM | END)
+                .setCaretSize(CARET_WIDTH, 18)
+                .setCornerRadius(8)
+                .build();
+    }
+}